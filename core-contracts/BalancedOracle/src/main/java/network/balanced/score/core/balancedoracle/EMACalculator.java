@@ -23,7 +23,7 @@ import score.DictDB;
 import java.math.BigInteger;
 
 import static network.balanced.score.lib.utils.Constants.EXA;
-import static network.balanced.score.lib.utils.Math.exaPow;
+import static network.balanced.score.lib.utils.FixedPoint.exaPow;
 
 public class EMACalculator {
     private static final DictDB<String, BigInteger> movingAverages = Context.newDictDB(
@@ -83,4 +83,4 @@ public class EMACalculator {
 
         return newMovingAverage;
     }
-}
\ No newline at end of file
+}
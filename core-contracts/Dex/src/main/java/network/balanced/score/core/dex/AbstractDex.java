@@ -39,7 +39,7 @@ import static network.balanced.score.core.dex.utils.Check.isValidPoolId;
 import static network.balanced.score.core.dex.utils.Const.*;
 import static network.balanced.score.lib.utils.Check.*;
 import static network.balanced.score.lib.utils.Constants.*;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.FixedPoint.*;
 
 public abstract class AbstractDex implements Dex {
 
@@ -381,7 +381,7 @@ public abstract class AbstractDex implements Dex {
         isValidPoolId(_id);
 
         if (_id.intValue() == SICXICX_POOL_ID) {
-            return ((EXA.multiply(EXA)).divide(getSicxRate()));
+            return EXA_SQUARED.divide(getSicxRate());
         }
 
         return priceOfAInB(_id.intValue(), poolQuote, poolBase);
@@ -406,7 +406,7 @@ public abstract class AbstractDex implements Dex {
         BigInteger ATokenTotal = totalTokensInPool.get(ATokenAddress);
         BigInteger BTokenTotal = totalTokensInPool.get(BTokenAddress);
 
-        return BTokenTotal.multiply(EXA).divide(ATokenTotal);
+        return exaDiv(BTokenTotal, ATokenTotal);
     }
 
     @External(readonly = true)
@@ -424,7 +424,7 @@ public abstract class AbstractDex implements Dex {
         Integer _id = namedMarkets.get(_name);
         if (_id.equals(SICXICX_POOL_ID)) {
             BigInteger icxTotal = icxQueueTotal.getOrDefault(BigInteger.ZERO);
-            return (icxTotal.multiply(getSicxBnusdPrice())).divide(getSicxRate());
+            return mulDiv(icxTotal, getSicxBnusdPrice(), getSicxRate());
         }
 
         Address poolQuoteToken = poolQuote.get(_id);
@@ -433,7 +433,7 @@ public abstract class AbstractDex implements Dex {
 
         if (poolQuoteToken.equals(sicxAddress)) {
             BigInteger sicxTotal = poolTotal.at(_id).get(sicxAddress).multiply(BigInteger.TWO);
-            return getSicxBnusdPrice().multiply(sicxTotal).divide(EXA);
+            return exaMul(getSicxBnusdPrice(), sicxTotal);
         } else if (poolQuoteToken.equals(bnusdAddress)) {
             return poolTotal.at(_id).get(bnusdAddress).multiply(BigInteger.TWO);
         }
@@ -637,7 +637,7 @@ public abstract class AbstractDex implements Dex {
         if (tokenAddress == null) {
             return BigInteger.TEN.multiply(EXA);
         } else if (sicx.get().equals(tokenAddress)) {
-            return (BigInteger.TEN.multiply(EXA.multiply(EXA))).divide(getSicxRate());
+            return BigInteger.TEN.multiply(EXA_SQUARED).divide(getSicxRate());
         } else if (bnUSD.get().equals(tokenAddress)) {
             return BigInteger.TEN.multiply(EXA);
         }
@@ -656,8 +656,8 @@ public abstract class AbstractDex implements Dex {
         Context.require(id != SICXICX_POOL_ID, TAG + ":  Not supported on this API, use the ICX swap API.");
         Context.require(active.getOrDefault(id, false), TAG + ": Pool is not active");
 
-        BigInteger lpFees = value.multiply(poolLpFee.get()).divide(FEE_SCALE);
-        BigInteger balnFees = value.multiply(poolBalnFee.get()).divide(FEE_SCALE);
+        BigInteger lpFees = mulDiv(value, poolLpFee.get(), FEE_SCALE);
+        BigInteger balnFees = mulDiv(value, poolBalnFee.get(), FEE_SCALE);
         BigInteger fees = lpFees.add(balnFees);
 
         Address poolBaseToken = poolBase.get(id);
@@ -676,7 +676,7 @@ public abstract class AbstractDex implements Dex {
         BigInteger newFromToken = oldFromToken.add(inputWithoutFees);
 
         // Compute the new fromToken according to the constant product formula
-        BigInteger newToToken = (oldFromToken.multiply(oldToToken)).divide(newFromToken);
+        BigInteger newToToken = mulDiv(oldFromToken, oldToToken, newFromToken);
 
         // Send the trader the amount of toToken removed from the pool by the constant product formula
         BigInteger sendAmount = oldToToken.subtract(newToToken);
@@ -705,12 +705,8 @@ public abstract class AbstractDex implements Dex {
         Context.call(fromToken, "transfer", feeHandler.get(), balnFees);
 
         // Broadcast pool ending price
-        BigInteger effectiveFillPrice = (value.multiply(EXA)).divide(sendAmount);
-        BigInteger endingPrice = totalQuote.multiply(EXA).divide(totalBase);
-
-        if (!isSell) {
-            effectiveFillPrice = (sendAmount.multiply(EXA)).divide(value);
-        }
+        BigInteger effectiveFillPrice = isSell ? exaDiv(value, sendAmount) : exaDiv(sendAmount, value);
+        BigInteger endingPrice = exaDiv(totalQuote, totalBase);
 
         Address balnTokenAddress = baln.get();
         if (fromToken.equals(balnTokenAddress)) {
@@ -745,10 +741,10 @@ public abstract class AbstractDex implements Dex {
         BigInteger oldIcxTotal = icxQueueTotal.getOrDefault(BigInteger.ZERO);
         List<RewardsDataEntry> oldData = new ArrayList<>();
 
-        BigInteger balnFees = (value.multiply(icxBalnFee.get())).divide(FEE_SCALE);
-        BigInteger conversionFees = value.multiply(icxConversionFee.get()).divide(FEE_SCALE);
+        BigInteger balnFees = mulDiv(value, icxBalnFee.get(), FEE_SCALE);
+        BigInteger conversionFees = mulDiv(value, icxConversionFee.get(), FEE_SCALE);
         BigInteger orderSize = value.subtract(balnFees.add(conversionFees));
-        BigInteger orderIcxValue = (orderSize.multiply(sicxIcxPrice)).divide(EXA);
+        BigInteger orderIcxValue = exaMul(orderSize, sicxIcxPrice);
         BigInteger lpSicxSize = orderSize.add(conversionFees);
 
         Context.require(orderIcxValue.compareTo(oldIcxTotal) <= 0,
@@ -786,7 +782,7 @@ public abstract class AbstractDex implements Dex {
                 updateAccountSnapshot(counterpartyAddress, SICXICX_POOL_ID, newCounterpartyValue);
             }
 
-            BigInteger lpSicxEarnings = (lpSicxSize.multiply(matchedIcx)).divide(orderIcxValue);
+            BigInteger lpSicxEarnings = mulDiv(lpSicxSize, matchedIcx, orderIcxValue);
             BigInteger newSicxEarnings = getSicxEarnings(counterpartyAddress).add(lpSicxEarnings);
             sicxEarnings.set(counterpartyAddress, newSicxEarnings);
 
@@ -797,7 +793,7 @@ public abstract class AbstractDex implements Dex {
         BigInteger newIcxTotal = oldIcxTotal.subtract(orderIcxValue);
         icxQueueTotal.set(newIcxTotal);
         updateTotalSupplySnapshot(SICXICX_POOL_ID, newIcxTotal);
-        BigInteger effectiveFillPrice = (orderIcxValue.multiply(EXA)).divide(value);
+        BigInteger effectiveFillPrice = exaDiv(orderIcxValue, value);
         Address sicxAddress = sicx.get();
         Swap(BigInteger.valueOf(SICXICX_POOL_ID), sicxAddress, sicxAddress, EOA_ZERO, sender, sender, value,
                 orderIcxValue, BigInteger.valueOf(Context.getBlockTimestamp()), conversionFees, balnFees, newIcxTotal
@@ -813,7 +809,7 @@ public abstract class AbstractDex implements Dex {
         if (tokenAddress == null) {
             return EXA;
         } else {
-            return pow(BigInteger.TEN, tokenPrecisions.get(tokenAddress).intValue());
+            return tenPow(tokenPrecisions.get(tokenAddress).intValue());
         }
     }
 
@@ -21,6 +21,7 @@ import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonObject;
 import network.balanced.score.core.dex.db.NodeDB;
 import network.balanced.score.lib.structs.RewardsDataEntry;
+import network.balanced.score.lib.utils.TokenFallbackData;
 import score.Address;
 import score.BranchDB;
 import score.Context;
@@ -138,13 +139,20 @@ public class DexImpl extends AbstractDex {
         takeNewDaySnapshot();
         checkDistributions();
 
-        // Parse the transaction data submitted by the user
-        String unpackedData = new String(_data);
-        require(!unpackedData.equals(""), "Token Fallback: Data can't be empty");
-
-        JsonObject json = Json.parse(unpackedData).asObject();
+        // Parse the transaction data submitted by the user, either binary encoded or as json
+        TokenFallbackData binaryData = null;
+        JsonObject json = null;
+        String method;
+        if (TokenFallbackData.isBinary(_data)) {
+            binaryData = TokenFallbackData.decode(_data);
+            method = binaryData.getMethod();
+        } else {
+            String unpackedData = new String(_data);
+            require(!unpackedData.equals(""), "Token Fallback: Data can't be empty");
 
-        String method = json.get("method").asString();
+            json = Json.parse(unpackedData).asObject();
+            method = json.get("method").asString();
+        }
         Address fromToken = Context.getCaller();
 
         require(_value.compareTo(BigInteger.ZERO) > 0, TAG + ": Invalid token transfer value");
@@ -171,28 +179,34 @@ public class DexImpl extends AbstractDex {
                 break;
 
             } case "_swap":{
-
-                // Parse the slippage sent by the user in minimumReceive.
-                // If none is sent, use the maximum.
-                JsonObject params = json.get("params").asObject();
-                BigInteger minimumReceive = BigInteger.ZERO;
-                if (params.contains("minimumReceive")) {
-                    minimumReceive = convertToNumber(params.get("minimumReceive"));
-                    require(minimumReceive.signum() >= 0,
-                            TAG + ": Must specify a positive number for minimum to receive");
-                }
-
-                // Check if an alternative recipient of the swap is set.
+                BigInteger minimumReceive;
                 Address receiver;
-                if (params.contains("receiver")) {
-                    receiver = Address.fromString(params.get("receiver").asString());
+                Address toToken;
+                if (binaryData != null) {
+                    minimumReceive = binaryData.getMinimumReceive();
+                    receiver = binaryData.getReceiver() != null ? binaryData.getReceiver() : _from;
+                    toToken = binaryData.getToToken();
                 } else {
-                    receiver = _from;
+                    // Parse the slippage sent by the user in minimumReceive.
+                    // If none is sent, use the maximum.
+                    JsonObject params = json.get("params").asObject();
+                    minimumReceive = BigInteger.ZERO;
+                    if (params.contains("minimumReceive")) {
+                        minimumReceive = convertToNumber(params.get("minimumReceive"));
+                    }
+
+                    // Check if an alternative recipient of the swap is set.
+                    if (params.contains("receiver")) {
+                        receiver = Address.fromString(params.get("receiver").asString());
+                    } else {
+                        receiver = _from;
+                    }
+
+                    // Get destination coin from the swap
+                    require(params.contains("toToken"), TAG + ": No toToken specified in swap");
+                    toToken = Address.fromString(params.get("toToken").asString());
                 }
-
-                // Get destination coin from the swap
-                require(params.contains("toToken"), TAG + ": No toToken specified in swap");
-                Address toToken = Address.fromString(params.get("toToken").asString());
+                require(minimumReceive.signum() >= 0, TAG + ": Must specify a positive number for minimum to receive");
 
                 // Perform the swap
                 exchange(fromToken, toToken, _from, receiver, _value, minimumReceive);
@@ -506,6 +520,40 @@ public class DexImpl extends AbstractDex {
         return snapshotValueAt(_snapshot_id, snapshot);
     }
 
+    @External(readonly = true)
+    public List<BigInteger> balancesOfAt(Address _account, BigInteger[] _ids, BigInteger _snapshot_id) {
+        List<BigInteger> balances = new ArrayList<>();
+        for (BigInteger id : _ids) {
+            balances.add(balanceOfAt(_account, id, _snapshot_id, false));
+        }
+
+        return balances;
+    }
+
+    @External(readonly = true)
+    public List<List<BigInteger>> balancesOfAccountsAt(Address[] _accounts, BigInteger[] _ids,
+                                                       BigInteger _snapshot_id) {
+        List<List<BigInteger>> balances = new ArrayList<>();
+        for (Address account : _accounts) {
+            balances.add(balancesOfAt(account, _ids, _snapshot_id));
+        }
+
+        return balances;
+    }
+
+    @External(readonly = true)
+    public List<Map<String, BigInteger>> poolSnapshotsAt(BigInteger[] _ids, BigInteger _snapshot_id) {
+        List<Map<String, BigInteger>> snapshots = new ArrayList<>();
+        for (BigInteger id : _ids) {
+            snapshots.add(Map.of(
+                    "totalSupply", totalSupplyAt(id, _snapshot_id, false),
+                    "totalBaln", totalBalnAt(id, _snapshot_id, false)
+            ));
+        }
+
+        return snapshots;
+    }
+
     @External(readonly = true)
     public Map<String, Object> loadBalancesAtSnapshot(BigInteger _id, BigInteger _snapshot_id, BigInteger _limit,
                                                       @Optional BigInteger _offset) {
@@ -20,6 +20,7 @@ import com.eclipsesource.json.JsonObject;
 import com.iconloop.score.test.Account;
 import network.balanced.score.core.dex.utils.Const;
 import network.balanced.score.lib.structs.PrepDelegations;
+import network.balanced.score.lib.utils.TokenFallbackData;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -30,6 +31,7 @@ import score.Context;
 
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static network.balanced.score.core.dex.utils.Const.SICXICX_POOL_ID;
@@ -208,6 +210,27 @@ public class DexTestCore extends DexTestBase {
         assertEquals(depositValue, retrievedDepositValue);
     }
 
+    @Test
+    void tokenFallback_binaryDeposit() {
+        // Arrange.
+        Account tokenScoreCaller = balnScore;
+        Account tokenSender = sm.createAccount();
+        BigInteger depositValue = BigInteger.valueOf(1000000000);
+
+        contextMock.when(() -> Context.call(eq(rewardsScore.getAddress()), eq("distribute"))).thenReturn(true);
+        contextMock.when(() -> Context.call(eq(dividendsScore.getAddress()), eq("distribute"))).thenReturn(true);
+        contextMock.when(() -> Context.call(any(Address.class), eq("decimals"))).thenReturn(BigInteger.valueOf(18));
+
+        // Act.
+        dexScore.invoke(tokenScoreCaller, "tokenFallback", tokenSender.getAddress(), depositValue,
+                TokenFallbackData.deposit());
+        BigInteger retrievedDepositValue = (BigInteger) dexScore.call("getDeposit", tokenScoreCaller.getAddress(),
+                tokenSender.getAddress());
+
+        // Assert.
+        assertEquals(depositValue, retrievedDepositValue);
+    }
+
     @Test
     void withdrawTokens_negativeAmount() {
         // Arrange.
@@ -570,6 +593,10 @@ public class DexTestCore extends DexTestBase {
         BigInteger day = BigInteger.valueOf(Context.getBlockTimestamp()).divide(BigInteger.valueOf(1000000L));
         BigInteger balance = (BigInteger) dexScore.call("balanceOfAt", account.getAddress(), poolId, day, true);
         assertEquals(dexScore.call("balanceOf", account.getAddress(), poolId), balance);
+
+        Address[] accounts = new Address[]{account.getAddress(), sm.createAccount().getAddress()};
+        assertEquals(List.of(List.of(balance), List.of(BigInteger.ZERO)), dexScore.call("balancesOfAccountsAt",
+                accounts, new BigInteger[]{poolId}, day));
     }
 
     @Test
@@ -29,6 +29,7 @@ public class Constants {
     static final String DEX_SCORE = "dex_score";
 
     static final String ACCEPTED_TOKENS = "accepted_tokens";
+    static final String ACCEPTED_TOKENS_INDEX = "accepted_tokens_index";
     public static final String AMOUNT_TO_DISTRIBUTE = "amount_to_distribute";
     public static final String AMOUNT_BEING_DISTRIBUTED = "amount_being_distributed";
     public static final String BALN_DIST_INDEX = "baln_dist_index";
@@ -65,6 +66,11 @@ public class Constants {
     static final String COMPLETE_DIVIDENDS_CATEGORIES = "complete_dividends_categories";
 
     static final String ACCRUED_DIVIDENDS = "accrued_dividends";
+    static final String LEGACY_DIVIDENDS_DAY = "legacy_dividends_day";
+    static final String LEGACY_STAKERS = "legacy_stakers";
+    static final String LEGACY_PRECOMPUTE_DAY = "legacy_precompute_day";
+    static final String LEGACY_PRECOMPUTE_INDEX = "legacy_precompute_index";
+    static final String BALN_STAKE_PULL_MODE = "baln_stake_pull_mode";
 
     static final BigInteger TWO_FIFTY_SIX = BigInteger.valueOf(256);
 
@@ -75,6 +81,7 @@ public class Constants {
 
     static BigInteger BALNBNUSD_ID = BigInteger.valueOf(3);
     static BigInteger BALNSICX_ID = BigInteger.valueOf(4);
+    static BigInteger[] BALN_POOL_IDS = {BALNBNUSD_ID, BALNSICX_ID};
 
     static final String IDS = "ids";
     static final String AMOUNT = "amount";
@@ -19,6 +19,7 @@ package network.balanced.score.core.dividends;
 import network.balanced.score.lib.interfaces.Dividends;
 import network.balanced.score.lib.structs.DistributionPercentage;
 import network.balanced.score.lib.structs.PrepDelegations;
+import network.balanced.score.lib.utils.EnumerableSetDB;
 import score.*;
 import score.annotation.EventLog;
 import score.annotation.External;
@@ -49,6 +50,9 @@ public class DividendsImpl implements Dividends {
     private static final VarDB<Address> dexScore = Context.newVarDB(DEX_SCORE, Address.class);
 
     private static final ArrayDB<Address> acceptedTokens = Context.newArrayDB(ACCEPTED_TOKENS, Address.class);
+    // Position of each accepted token in acceptedTokens, offset by one so that zero means not accepted.
+    private static final DictDB<Address, Integer> acceptedTokensIndex = Context.newDictDB(ACCEPTED_TOKENS_INDEX,
+            Integer.class);
     public static final VarDB<BigInteger> snapshotId = Context.newVarDB(SNAPSHOT_ID, BigInteger.class);
     private static final BranchDB<BigInteger, DictDB<String, BigInteger>> dailyFees = Context.newBranchDB(DAILY_FEES,
             BigInteger.class);
@@ -73,6 +77,18 @@ public class DividendsImpl implements Dividends {
 
     private static final BranchDB<Address, DictDB<Address, BigInteger>> accruedDividends =
             Context.newBranchDB(ACCRUED_DIVIDENDS, BigInteger.class);
+    // [user] = first legacy day which has not yet been folded into accruedDividends
+    private static final DictDB<Address, BigInteger> legacyDividendsDay =
+            Context.newDictDB(LEGACY_DIVIDENDS_DAY, BigInteger.class);
+    private static final EnumerableSetDB<Address> legacyStakers = new EnumerableSetDB<>(LEGACY_STAKERS,
+            Address.class);
+    // Every day before legacyPrecomputeDay has been credited to all legacy stakers
+    private static final VarDB<BigInteger> legacyPrecomputeDay = Context.newVarDB(LEGACY_PRECOMPUTE_DAY,
+            BigInteger.class);
+    private static final VarDB<BigInteger> legacyPrecomputeIndex = Context.newVarDB(LEGACY_PRECOMPUTE_INDEX,
+            BigInteger.class);
+    // Stake increases are left pending in the BALN contract and pulled when the user claims
+    private static final VarDB<Boolean> balnStakePullMode = Context.newVarDB(BALN_STAKE_PULL_MODE, Boolean.class);
 
     public DividendsImpl(@Optional Address _governance) {
         if (governance.get() == null) {
@@ -83,6 +99,13 @@ public class DividendsImpl implements Dividends {
             distributionActivate.set(false);
             addInitialCategories();
         }
+
+        List<Address> acceptedTokensList = getAcceptedTokens();
+        int numberOfAcceptedTokens = acceptedTokensList.size();
+        for (int i = 0; i < numberOfAcceptedTokens; i++) {
+            acceptedTokensIndex.set(acceptedTokensList.get(i), i + 1);
+        }
+        DividendsTracker.syncTotalWeights(acceptedTokensList);
     }
 
     @External(readonly = true)
@@ -253,8 +276,16 @@ public class DividendsImpl implements Dividends {
         only(admin);
         isContract(_token);
 
-        if (!arrayDbContains(acceptedTokens, _token)) {
-            acceptedTokens.add(_token);
+        addAcceptedToken(_token);
+    }
+
+    @External
+    @SuppressWarnings("unchecked")
+    public void updateAcceptedTokens() {
+        onlyEither(admin, loanScore);
+        Map<String, String> assetTokens = (Map<String, String>) Context.call(loanScore.get(), "getAssetTokens");
+        for (String token : assetTokens.values()) {
+            addAcceptedToken(Address.fromString(token));
         }
     }
 
@@ -426,11 +457,13 @@ public class DividendsImpl implements Dividends {
         BigInteger stakedBalance = getBalnBalance(user);
         Map<String, BigInteger> totalDividends = new HashMap<>();
 
-        int size = acceptedTokens.size();
+        List<Address> acceptedTokensList = getAcceptedTokens();
+        int size = acceptedTokensList.size();
+        BigInteger[] userDividends = DividendsTracker.updateUserData(acceptedTokensList, user, stakedBalance, true);
         DictDB<Address, BigInteger> userAccruedDividends = accruedDividends.at(user);
         for (int i = 0; i < size; i++) {
-            Address token = acceptedTokens.get(i);
-            BigInteger accruedDividends = DividendsTracker.updateUserData(token, user, stakedBalance, true);
+            Address token = acceptedTokensList.get(i);
+            BigInteger accruedDividends = userDividends[i];
             BigInteger prevAccruedDividends = userAccruedDividends.getOrDefault(token, BigInteger.ZERO);
             BigInteger totalDivs = accruedDividends.add(prevAccruedDividends);
             totalDividends.put(token.toString(), totalDivs);
@@ -442,12 +475,18 @@ public class DividendsImpl implements Dividends {
     @External
     public void claimDividends() {
         Address user = Context.getCaller();
+        if (balnStakePullMode.getOrDefault(false)) {
+            Context.call(balnScore.get(), "syncDividendsStake", (Object) new Address[]{user});
+        }
+
         BigInteger stakedBalance = getBalnBalance(user);
-        int size = acceptedTokens.size();
+        List<Address> acceptedTokensList = getAcceptedTokens();
+        int size = acceptedTokensList.size();
+        BigInteger[] userDividends = DividendsTracker.updateUserData(acceptedTokensList, user, stakedBalance, false);
         DictDB<Address, BigInteger> userAccruedDividends = accruedDividends.at(user);
         for (int i = 0; i < size; i++) {
-            Address token = acceptedTokens.get(i);
-            BigInteger accruedDividends = DividendsTracker.updateUserData(token, user, stakedBalance, false);
+            Address token = acceptedTokensList.get(i);
+            BigInteger accruedDividends = userDividends[i];
             BigInteger prevAccruedDividends = userAccruedDividends.getOrDefault(token, BigInteger.ZERO);
             BigInteger totalDivs = accruedDividends.add(prevAccruedDividends);
             if (totalDivs.signum() > 0) {
@@ -462,6 +501,23 @@ public class DividendsImpl implements Dividends {
         Context.require(distributionActivate.getOrDefault(false),
                 TAG + ": Distribution is not activated. Can't transfer.");
 
+        if (continuousDividendsActive()) {
+            // Legacy days are credited to the legacy stakers by precomputeLegacyDividends, so a plain claim only
+            // pays out the accrued dividends. Other accounts can still fold a legacy range by passing it.
+            if (_start != 0 || _end != 0) {
+                Address user = Context.getCaller();
+                int[] legacyRange = checkStartEnd(_start, _end);
+                Map<String, BigInteger> legacyDividends = foldLegacyDividends(user, legacyRange[0], legacyRange[1]);
+                if (legacyDividends.size() > 0) {
+                    Claimed(user, BigInteger.valueOf(legacyRange[0]), BigInteger.valueOf(legacyRange[1]),
+                            dividendsMapToJson(legacyDividends));
+                }
+            }
+
+            claimDividends();
+            return;
+        }
+
         int[] value = checkStartEnd(_start, _end);
         int start = value[0];
         int end = value[1];
@@ -504,60 +560,105 @@ public class DividendsImpl implements Dividends {
         Context.require(distributionActivate.getOrDefault(false),
                 TAG + ": Distribution is not activated. Can't transfer.");
 
+        if (_start == 0 && _end == 0 && continuousDividendsActive()) {
+            int[] legacyRange = nextLegacyRange(user);
+            if (legacyRange != null) {
+                foldLegacyDividends(user, legacyRange[0], legacyRange[1]);
+            }
+
+            return;
+        }
+
         int[] value = checkStartEnd(_start, _end);
-        int start = value[0];
-        int end = value[1];
-        Map<String, BigInteger> totalDividends = new HashMap<>();
+        foldLegacyDividends(user, value[0], value[1]);
+    }
+
+    @External(readonly = true)
+    public BigInteger getLegacyDividendsDay(Address user) {
+        BigInteger day = legacyDividendsDay.getOrDefault(user, BigInteger.ONE);
+        if (legacyStakers.contains(user)) {
+            return day.max(legacyPrecomputeDay.getOrDefault(BigInteger.ONE));
+        }
+
+        return day;
+    }
+
+    @External
+    public void addLegacyStakers(Address[] _stakers) {
+        only(admin);
+        Context.require(legacyPrecomputeDay.get() == null,
+                TAG + ": Legacy dividends precompute has already started.");
+        for (Address staker : _stakers) {
+            legacyStakers.add(staker);
+        }
+    }
+
+    @External(readonly = true)
+    public Map<String, BigInteger> getLegacyPrecomputeStatus() {
+        return Map.of(
+                "day", legacyPrecomputeDay.getOrDefault(BigInteger.ONE),
+                "index", legacyPrecomputeIndex.getOrDefault(BigInteger.ZERO),
+                "stakers", BigInteger.valueOf(legacyStakers.length())
+        );
+    }
+
+    @External
+    public void precomputeLegacyDividends(@Optional int _limit) {
+        Context.require(distributionActivate.getOrDefault(false),
+                TAG + ": Distribution is not activated. Can't transfer.");
+        Context.require(continuousDividendsActive(),
+                TAG + ": Legacy dividends can only be precomputed once continuous dividends are active.");
+        int stakersCount = legacyStakers.length();
+        Context.require(stakersCount > 0, TAG + ": No legacy stakers to precompute dividends for.");
+
+        int limit = _limit > 0 ? _limit : getPositiveBatchSize();
+        int snap = snapshotId.getOrDefault(BigInteger.ZERO).intValue();
+        int day = legacyPrecomputeDay.getOrDefault(BigInteger.ONE).intValue();
+        int index = legacyPrecomputeIndex.getOrDefault(BigInteger.ZERO).intValue();
 
         Address baln = balnScore.get();
         Address dex = dexScore.get();
         BigInteger dividendsSwitchingDay = dividendsEnabledToStakedBalnDay.getOrDefault(BigInteger.ZERO);
-        int size = acceptedTokens.size();
-        List<Address> acceptedTokensList = new ArrayList<>();
-        for (int i = 0; i < size; i++) {
-            acceptedTokensList.add(acceptedTokens.get(i));
-        }
+        List<Address> acceptedTokensList = getAcceptedTokens();
 
-        for (int i = start; i < end; i++) {
-            Map<String, BigInteger> dividends = getDividendsForDay(user, BigInteger.valueOf(i), baln, dex,
-                    dividendsSwitchingDay, acceptedTokensList);
-            if (dividends.size() != 0) {
-                setClaimed(user, BigInteger.valueOf(i));
+        while (limit > 0 && day < snap) {
+            BigInteger currentDay = BigInteger.valueOf(day);
+            if (index == 0 && !hasDailyFees(currentDay, acceptedTokensList)) {
+                day++;
+                limit--;
+                continue;
             }
 
-            totalDividends = addDividends(totalDividends, dividends, acceptedTokensList);
-        }
+            int batchEnd = Math.min(stakersCount, index + limit);
+            List<Address> stakers = new ArrayList<>();
+            for (int i = index; i < batchEnd; i++) {
+                Address staker = legacyStakers.at(i);
+                if (!isClaimed(staker, currentDay)) {
+                    stakers.add(staker);
+                }
+            }
 
-        DictDB<Address, BigInteger> userAccruedDividends = accruedDividends.at(user);
-        for (Address token : acceptedTokensList) {
-            if (totalDividends.containsKey(token.toString()) && totalDividends.get(token.toString()).signum() > 0) {
-                BigInteger accruedDividends = totalDividends.get(token.toString());
-                BigInteger prevAccruedDividends = userAccruedDividends.getOrDefault(token, BigInteger.ZERO);
-                userAccruedDividends.set(token, accruedDividends.add(prevAccruedDividends));
+            creditDividendsForDay(stakers, currentDay, baln, dex, dividendsSwitchingDay, acceptedTokensList);
+            limit -= batchEnd - index;
+            index = batchEnd;
+            if (index == stakersCount) {
+                index = 0;
+                day++;
             }
         }
+
+        legacyPrecomputeDay.set(BigInteger.valueOf(day));
+        legacyPrecomputeIndex.set(BigInteger.valueOf(index));
     }
 
     @External
-    @SuppressWarnings("unchecked")
     public void tokenFallback(Address _from, BigInteger _value, byte[] _data) {
         Address token = Context.getCaller();
-        Map<String, String> availableTokens;
-        int acceptedTokensCount = acceptedTokens.size();
-        for (int i = 0; i < acceptedTokensCount; i++) {
-            if (!token.equals(acceptedTokens.get(i))) {
-                availableTokens = (Map<String, String>) Context.call(loanScore.get(), "getAssetTokens");
-                for (String value : availableTokens.values()) {
-                    if (token.toString().equals(value)) {
-                        acceptedTokens.add(token);
-                    }
-                }
-            }
-        }
 
         if (continuousDividendsActive()) {
             BigInteger dividendsToDaofund = _value.multiply(dividendsPercentage.get(DAOFUND)).divide(EXA);
-            DividendsTracker.updateTotalWeight(token, _value.subtract(dividendsToDaofund));
+            int tokenIndex = acceptedTokensIndex.getOrDefault(token, 0) - 1;
+            DividendsTracker.updateTotalWeight(token, tokenIndex, _value.subtract(dividendsToDaofund));
             DividendsReceivedV2(_value, getDay(), _value + " tokens received as dividends token: " + token);
             sendToken(daoFund.get(), dividendsToDaofund, token, "Daofund dividends");
         } else {
@@ -570,14 +671,32 @@ public class DividendsImpl implements Dividends {
         }
     }
 
+    @External
+    public void setBalnStakePullMode(boolean _enabled) {
+        only(balnScore);
+        balnStakePullMode.set(_enabled);
+    }
+
+    @External(readonly = true)
+    public boolean getBalnStakePullMode() {
+        return balnStakePullMode.getOrDefault(false);
+    }
+
     @External
     public void updateBalnStake(Address user, BigInteger prevStakedBalance, BigInteger currentTotalSupply) {
         only(balnScore);
-        int size = acceptedTokens.size();
+        List<Address> acceptedTokensList = getAcceptedTokens();
+        int size = acceptedTokensList.size();
+        BigInteger[] userDividends = DividendsTracker.updateUserData(acceptedTokensList, user, prevStakedBalance,
+                false);
         DictDB<Address, BigInteger> userAccruedDividends = accruedDividends.at(user);
         for (int i = 0; i < size; i++) {
-            Address token = acceptedTokens.get(i);
-            BigInteger accruedDividends = DividendsTracker.updateUserData(token, user, prevStakedBalance, false);
+            BigInteger accruedDividends = userDividends[i];
+            if (accruedDividends.signum() == 0) {
+                continue;
+            }
+
+            Address token = acceptedTokensList.get(i);
             BigInteger prevAccruedDividends = userAccruedDividends.getOrDefault(token, BigInteger.ZERO);
             userAccruedDividends.set(token, prevAccruedDividends.add(accruedDividends));
         }
@@ -675,8 +794,14 @@ public class DividendsImpl implements Dividends {
         return dividendsDist;
     }
 
-    private int[] checkStartEnd(int start, int end) {
+    private int getPositiveBatchSize() {
         int batch = dividendsBatchSize.getOrDefault(BigInteger.ZERO).intValue();
+        Context.require(batch > 0, TAG + ": Dividends batch size must be set to a positive value.");
+        return batch;
+    }
+
+    private int[] checkStartEnd(int start, int end) {
+        int batch = getPositiveBatchSize();
         int snap = snapshotId.getOrDefault(BigInteger.ZERO).intValue();
         if (start == 0 && end == 0) {
             end = snap;
@@ -695,6 +820,87 @@ public class DividendsImpl implements Dividends {
         return new int[]{start, end};
     }
 
+    private int[] nextLegacyRange(Address user) {
+        int batch = getPositiveBatchSize();
+        int snap = snapshotId.getOrDefault(BigInteger.ZERO).intValue();
+        int start = getLegacyDividendsDay(user).intValue();
+        if (start >= snap) {
+            return null;
+        }
+
+        return new int[]{start, Math.min(snap, start + batch)};
+    }
+
+    /**
+     * @return Non zero dividends of the range per token, which have been added to the accrued dividends of the user
+     */
+    private Map<String, BigInteger> foldLegacyDividends(Address user, int start, int end) {
+        Map<String, BigInteger> totalDividends = new HashMap<>();
+
+        Address baln = balnScore.get();
+        Address dex = dexScore.get();
+        BigInteger dividendsSwitchingDay = dividendsEnabledToStakedBalnDay.getOrDefault(BigInteger.ZERO);
+        List<Address> acceptedTokensList = getAcceptedTokens();
+
+        for (int i = start; i < end; i++) {
+            Map<String, BigInteger> dividends = getDividendsForDay(user, BigInteger.valueOf(i), baln, dex,
+                    dividendsSwitchingDay, acceptedTokensList);
+            if (dividends.size() != 0) {
+                setClaimed(user, BigInteger.valueOf(i));
+            }
+
+            totalDividends = addDividends(totalDividends, dividends, acceptedTokensList);
+        }
+
+        addAccruedDividends(user, totalDividends, acceptedTokensList);
+
+        int legacyDay = getLegacyDividendsDay(user).intValue();
+        if (start <= legacyDay && end > legacyDay) {
+            legacyDividendsDay.set(user, BigInteger.valueOf(end));
+        }
+
+        Map<String, BigInteger> nonZeroTokens = new HashMap<>();
+        for (Address token : acceptedTokensList) {
+            if (totalDividends.containsKey(token.toString()) && totalDividends.get(token.toString()).signum() > 0) {
+                nonZeroTokens.put(token.toString(), totalDividends.get(token.toString()));
+            }
+        }
+
+        return nonZeroTokens;
+    }
+
+    private void addAcceptedToken(Address token) {
+        if (acceptedTokensIndex.getOrDefault(token, 0) == 0) {
+            acceptedTokens.add(token);
+            acceptedTokensIndex.set(token, acceptedTokens.size());
+            DividendsTracker.addTotalWeight();
+        }
+    }
+
+    private void addAccruedDividends(Address user, Map<String, BigInteger> dividends,
+                                     List<Address> acceptedTokensList) {
+        DictDB<Address, BigInteger> userAccruedDividends = accruedDividends.at(user);
+        for (Address token : acceptedTokensList) {
+            if (dividends.containsKey(token.toString()) && dividends.get(token.toString()).signum() > 0) {
+                BigInteger accruedDividends = dividends.get(token.toString());
+                BigInteger prevAccruedDividends = userAccruedDividends.getOrDefault(token, BigInteger.ZERO);
+                userAccruedDividends.set(token, accruedDividends.add(prevAccruedDividends));
+            }
+        }
+    }
+
+    private boolean hasDailyFees(BigInteger day, List<Address> acceptedTokensList) {
+        DictDB<String, BigInteger> feesOnDay = dailyFees.at(day);
+        for (Address token : acceptedTokensList) {
+            if (feesOnDay.getOrDefault(token.toString(), BigInteger.ZERO).signum() > 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
     private Map<String, BigInteger> getDividendsForDay(Address account, BigInteger day, Address baln, Address dex,
                                                        BigInteger dividendsSwitchingDay,
                                                        List<Address> acceptedTokensList) {
@@ -705,19 +911,73 @@ public class DividendsImpl implements Dividends {
 
         BigInteger stakedBaln = (BigInteger) Context.call(baln, "stakedBalanceOfAt", account, day);
         BigInteger totalStakedBaln = (BigInteger) Context.call(baln, "totalStakedBalanceOfAt", day);
+        List<Map<String, BigInteger>> poolSnapshots = getPoolSnapshots(dex, day, dividendsSwitchingDay);
+        List<BigInteger> lpBalances = null;
+        if (poolSnapshots != null) {
+            lpBalances = (List<BigInteger>) Context.call(dex, "balancesOfAt", account, BALN_POOL_IDS, day);
+        }
 
-        BigInteger myBalnFromPools = BigInteger.ZERO;
-        BigInteger totalBalnFromPools = BigInteger.ZERO;
+        return calculateDividendsForDay(day, stakedBaln, totalStakedBaln, lpBalances, poolSnapshots,
+                acceptedTokensList);
+    }
 
-        List<BigInteger> poolList = new ArrayList<>();
-        poolList.add(BALNBNUSD_ID);
-        poolList.add(BALNSICX_ID);
+    @SuppressWarnings("unchecked")
+    private void creditDividendsForDay(List<Address> accounts, BigInteger day, Address baln, Address dex,
+                                       BigInteger dividendsSwitchingDay, List<Address> acceptedTokensList) {
+        int numberOfAccounts = accounts.size();
+        if (numberOfAccounts == 0) {
+            return;
+        }
+
+        Address[] accountsArray = new Address[numberOfAccounts];
+        for (int i = 0; i < numberOfAccounts; i++) {
+            accountsArray[i] = accounts.get(i);
+        }
+
+        List<BigInteger> stakedBalances = (List<BigInteger>) Context.call(baln, "stakedBalancesOfAt", accountsArray,
+                day);
+        BigInteger totalStakedBaln = (BigInteger) Context.call(baln, "totalStakedBalanceOfAt", day);
+        List<Map<String, BigInteger>> poolSnapshots = getPoolSnapshots(dex, day, dividendsSwitchingDay);
+        List<List<BigInteger>> lpBalances = null;
+        if (poolSnapshots != null) {
+            lpBalances = (List<List<BigInteger>>) Context.call(dex, "balancesOfAccountsAt", accountsArray,
+                    BALN_POOL_IDS, day);
+        }
+
+        for (int i = 0; i < numberOfAccounts; i++) {
+            Address account = accounts.get(i);
+            Map<String, BigInteger> dividends = calculateDividendsForDay(day, stakedBalances.get(i),
+                    totalStakedBaln, lpBalances != null ? lpBalances.get(i) : null, poolSnapshots,
+                    acceptedTokensList);
+            if (dividends.size() != 0) {
+                setClaimed(account, day);
+                addAccruedDividends(account, dividends, acceptedTokensList);
+            }
+        }
+    }
 
+    @SuppressWarnings("unchecked")
+    private List<Map<String, BigInteger>> getPoolSnapshots(Address dex, BigInteger day,
+                                                           BigInteger dividendsSwitchingDay) {
         if (dividendsSwitchingDay.equals(BigInteger.ZERO) || (day.compareTo(dividendsSwitchingDay) < 0)) {
-            for (BigInteger poolId : poolList) {
-                BigInteger myLp = (BigInteger) Context.call(dex, "balanceOfAt", account, poolId, day);
-                BigInteger totalLp = (BigInteger) Context.call(dex, "totalSupplyAt", poolId, day);
-                BigInteger totalBaln = (BigInteger) Context.call(dex, "totalBalnAt", poolId, day);
+            return (List<Map<String, BigInteger>>) Context.call(dex, "poolSnapshotsAt", BALN_POOL_IDS, day);
+        }
+
+        return null;
+    }
+
+    private Map<String, BigInteger> calculateDividendsForDay(BigInteger day, BigInteger stakedBaln,
+                                                             BigInteger totalStakedBaln, List<BigInteger> myLps,
+                                                             List<Map<String, BigInteger>> poolSnapshots,
+                                                             List<Address> acceptedTokensList) {
+        BigInteger myBalnFromPools = BigInteger.ZERO;
+        BigInteger totalBalnFromPools = BigInteger.ZERO;
+
+        if (poolSnapshots != null) {
+            for (int i = 0; i < BALN_POOL_IDS.length; i++) {
+                BigInteger myLp = myLps.get(i);
+                BigInteger totalLp = poolSnapshots.get(i).get("totalSupply");
+                BigInteger totalBaln = poolSnapshots.get(i).get("totalBaln");
                 BigInteger equivalentBaln = BigInteger.ZERO;
 
                 if (myLp.compareTo(BigInteger.ZERO) > 0 && totalLp.compareTo(BigInteger.ZERO) > 0 && totalBaln.compareTo(BigInteger.ZERO) > 0) {
@@ -841,8 +1101,10 @@ public class DividendsImpl implements Dividends {
         FundTransfer(to, amount, msg + amount + " token sent to" + to);
     }
 
+    // Stake changes left pending by pull mode are not part of the total supply here yet, and can still be pending
+    // after pull mode is switched off, so the stake is always read as last accounted for
     private BigInteger getBalnBalance(Address user) {
-        return Context.call(BigInteger.class, balnScore.get(), "stakedBalanceOf", user);
+        return Context.call(BigInteger.class, balnScore.get(), "getDividendsStake", user);
     }
 
     private void setTimeOffset() {
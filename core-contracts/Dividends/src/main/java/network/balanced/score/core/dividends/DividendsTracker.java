@@ -20,20 +20,31 @@ import static network.balanced.score.core.dividends.Check.continuousDividendsAct
 import static network.balanced.score.lib.utils.Constants.EXA;
 
 import java.math.BigInteger;
+import java.util.List;
 
+import network.balanced.score.core.dividends.db.WeightListDBSdo;
 import score.Address;
 import score.BranchDB;
 import score.Context;
 import score.DictDB;
 import score.VarDB;
+import scorex.util.ArrayList;
 
 public class DividendsTracker {
+    // Per token weights, only read to migrate into the packed entries below and tracked for tokens that are not
+    // accepted.
     private static final BranchDB<Address, DictDB<Address, BigInteger>> userWeight = Context.newBranchDB("user_weight",
             BigInteger.class);
     private static final  VarDB<BigInteger> totalSupply = Context.newVarDB("balnSupply", BigInteger.class);
     private static final  DictDB<Address, BigInteger> totalWeight = Context.newDictDB("running_total",
             BigInteger.class);
 
+    // Weights of all accepted tokens, ordered as the accepted tokens list.
+    private static final DictDB<Address, WeightListDBSdo> userWeights = Context.newDictDB("user_weights",
+            WeightListDBSdo.class);
+    private static final VarDB<WeightListDBSdo> totalWeights = Context.newVarDB("running_totals",
+            WeightListDBSdo.class);
+
     public static BigInteger getUserWeight(Address user, Address token) {
         return userWeight.at(user).getOrDefault(token, BigInteger.ZERO);
     }
@@ -50,25 +61,125 @@ public class DividendsTracker {
         return totalWeight.getOrDefault(token, BigInteger.ZERO);
     }
 
-    public static BigInteger updateUserData(Address token, Address user, BigInteger prevBalance, boolean readOnlyContext) {
+    public static List<BigInteger> getUserWeights(Address user, List<Address> tokens) {
+        List<BigInteger> weights = new ArrayList<>();
+        WeightListDBSdo packedWeights = userWeights.get(user);
+        int packedSize = 0;
+        if (packedWeights != null) {
+            weights.addAll(packedWeights.getWeights());
+            packedSize = weights.size();
+        }
+
+        int size = tokens.size();
+        if (packedSize < size) {
+            DictDB<Address, BigInteger> legacyWeights = userWeight.at(user);
+            for (int i = packedSize; i < size; i++) {
+                weights.add(legacyWeights.getOrDefault(tokens.get(i), BigInteger.ZERO));
+            }
+        }
+
+        return weights;
+    }
+
+    public static List<BigInteger> getTotalWeights(List<Address> tokens) {
+        List<BigInteger> weights = new ArrayList<>();
+        WeightListDBSdo packedWeights = totalWeights.get();
+        if (packedWeights != null) {
+            weights.addAll(packedWeights.getWeights());
+        }
+
+        int size = tokens.size();
+        for (int i = weights.size(); i < size; i++) {
+            weights.add(BigInteger.ZERO);
+        }
+
+        return weights;
+    }
+
+    /**
+     * Packs the per token global weights of the tokens accepted before the weights were packed. The per token user
+     * weights of those tokens were kept up to date, so they remain valid defaults for users without packed weights.
+     */
+    public static void syncTotalWeights(List<Address> tokens) {
+        if (totalWeights.get() != null) {
+            return;
+        }
+
+        List<BigInteger> tokenWeights = new ArrayList<>();
+        for (Address token : tokens) {
+            tokenWeights.add(getTotalWeight(token));
+        }
+
+        WeightListDBSdo weights = new WeightListDBSdo();
+        weights.setWeights(tokenWeights);
+        totalWeights.set(weights);
+    }
+
+    /**
+     * Adds an entry for a newly accepted token to the packed global weights. Weight tracked for the token before it
+     * was accepted is not carried over: no user weights were recorded for it, so users that staked after those fees
+     * arrived could not be told apart from users that staked before.
+     */
+    public static void addTotalWeight() {
+        List<BigInteger> tokenWeights = new ArrayList<>();
+        WeightListDBSdo packedWeights = totalWeights.get();
+        if (packedWeights != null) {
+            tokenWeights.addAll(packedWeights.getWeights());
+        }
+
+        tokenWeights.add(BigInteger.ZERO);
+        WeightListDBSdo weights = new WeightListDBSdo();
+        weights.setWeights(tokenWeights);
+        totalWeights.set(weights);
+    }
+
+    /**
+     * Computes the dividends accrued by a user for every token in a single pass over the packed weights and, outside
+     * of readonly calls, moves the user weights to the current global weights.
+     */
+    public static BigInteger[] updateUserData(List<Address> tokens, Address user, BigInteger prevBalance,
+                                              boolean readOnlyContext) {
+        int size = tokens.size();
+        BigInteger[] rewards = new BigInteger[size];
         if (!continuousDividendsActive()) {
-            return BigInteger.ZERO;
+            for (int i = 0; i < size; i++) {
+                rewards[i] = BigInteger.ZERO;
+            }
+            return rewards;
+        }
+
+        List<BigInteger> currentUserWeights = getUserWeights(user, tokens);
+        List<BigInteger> currentTotalWeights = getTotalWeights(tokens);
+        for (int i = 0; i < size; i++) {
+            rewards[i] = computeUserRewards(prevBalance, currentTotalWeights.get(i), currentUserWeights.get(i));
         }
 
-        BigInteger currentUserWeight = getUserWeight(user, token);
-        BigInteger totalWeight = getTotalWeight(token);
         if (!readOnlyContext) {
-            userWeight.at(user).set(token, totalWeight);
+            WeightListDBSdo weights = new WeightListDBSdo();
+            weights.setWeights(currentTotalWeights);
+            userWeights.set(user, weights);
         }
 
-        return computeUserRewards(prevBalance, totalWeight, currentUserWeight);
+        return rewards;
     }
 
-    public static void updateTotalWeight(Address token, BigInteger amountReceived) {
-        BigInteger previousTotalWeight = getTotalWeight(token);
+    /**
+     * @param tokenIndex position of the token in the accepted tokens list, or -1 if the token is not accepted
+     */
+    public static void updateTotalWeight(Address token, int tokenIndex, BigInteger amountReceived) {
         BigInteger addedWeight = amountReceived.multiply(EXA).divide(getTotalSupply());
-        
-        totalWeight.set(token, previousTotalWeight.add(addedWeight));
+        WeightListDBSdo packedWeights = totalWeights.get();
+        if (tokenIndex < 0 || packedWeights == null || tokenIndex >= packedWeights.getWeights().size()) {
+            totalWeight.set(token, getTotalWeight(token).add(addedWeight));
+            return;
+        }
+
+        List<BigInteger> weights = new ArrayList<>();
+        weights.addAll(packedWeights.getWeights());
+        weights.set(tokenIndex, weights.get(tokenIndex).add(addedWeight));
+        WeightListDBSdo newWeights = new WeightListDBSdo();
+        newWeights.setWeights(weights);
+        totalWeights.set(newWeights);
     }
 
     private static BigInteger computeUserRewards(BigInteger prevUserBalance, BigInteger totalWeight, BigInteger userWeight) {
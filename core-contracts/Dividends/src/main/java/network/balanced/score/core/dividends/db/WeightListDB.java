@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.dividends.db;
+
+import foundation.icon.score.data.ScoreDataObject;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Dividend weights for every accepted token, stored in a single entry. The weight at position i belongs to the i-th
+ * token of the accepted tokens list.
+ */
+@ScoreDataObject
+public class WeightListDB {
+    private List<BigInteger> weights;
+
+    public List<BigInteger> getWeights() {
+        return weights;
+    }
+
+    public void setWeights(List<BigInteger> weights) {
+        this.weights = weights;
+    }
+
+    @Override
+    public String toString() {
+        return "WeightListDB{" + "weights=" + weights + "}";
+    }
+}
@@ -168,6 +168,7 @@ class DividendsImplTest extends DividendsImplTestBase {
                 new byte[0]);
         // not yet added 
         dividendScore.invoke(balnScore, "tokenFallback", balnScore.getAddress(), expectedFeesBaln, new byte[0]);
+        dividendScore.invoke(admin, "updateAcceptedTokens");
 
         // Assert
         assertEquals(expectedResult, dividendScore.call("getDailyFees", day));
@@ -221,12 +222,9 @@ class DividendsImplTest extends DividendsImplTestBase {
         contextMock.when(() -> Context.call(eq(balnScore.getAddress()), eq("totalStakedBalanceOfAt"),
                 any(BigInteger.class))).thenReturn(BigInteger.valueOf(200).multiply(pow(BigInteger.TEN, 18)));
 
-        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("balanceOfAt"), any(Address.class),
-                any(BigInteger.class), any(BigInteger.class))).thenReturn(BigInteger.valueOf(30).multiply(pow(BigInteger.TEN, 18)));
-        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("totalSupplyAt"), any(BigInteger.class),
-                any(BigInteger.class))).thenReturn(BigInteger.valueOf(50).multiply(pow(BigInteger.TEN, 18)));
-        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("totalBalnAt"), any(BigInteger.class),
-                any(BigInteger.class))).thenReturn(BigInteger.valueOf(80).multiply(pow(BigInteger.TEN, 18)));
+        mockPoolSnapshots(BigInteger.valueOf(30).multiply(pow(BigInteger.TEN, 18)),
+                BigInteger.valueOf(50).multiply(pow(BigInteger.TEN, 18)),
+                BigInteger.valueOf(80).multiply(pow(BigInteger.TEN, 18)));
 
         contextMock.when(() -> Context.call(eq(bnUSDScore.getAddress()), eq("transfer"), eq(owner.getAddress()),
                 any(BigInteger.class))).thenReturn("Token Transferred");
@@ -260,12 +258,9 @@ class DividendsImplTest extends DividendsImplTestBase {
         contextMock.when(() -> Context.call(eq(balnScore.getAddress()), eq("totalStakedBalanceOfAt"),
                 any(BigInteger.class))).thenReturn(BigInteger.valueOf(200).multiply(pow(BigInteger.TEN, 18)));
 
-        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("balanceOfAt"), any(Address.class),
-                any(BigInteger.class), any(BigInteger.class))).thenReturn(BigInteger.valueOf(50).multiply(pow(BigInteger.TEN, 18)));
-        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("totalSupplyAt"), any(BigInteger.class),
-                any(BigInteger.class))).thenReturn(BigInteger.valueOf(50).multiply(pow(BigInteger.TEN, 18)));
-        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("totalBalnAt"), any(BigInteger.class),
-                any(BigInteger.class))).thenReturn(BigInteger.valueOf(80).multiply(pow(BigInteger.TEN, 18)));
+        mockPoolSnapshots(BigInteger.valueOf(50).multiply(pow(BigInteger.TEN, 18)),
+                BigInteger.valueOf(50).multiply(pow(BigInteger.TEN, 18)),
+                BigInteger.valueOf(80).multiply(pow(BigInteger.TEN, 18)));
 
         Map<String, BigInteger> expected_result = new HashMap<>();
         expected_result.put(String.valueOf(bnUSDScore.getAddress()), expectedStakingFees);
@@ -304,12 +299,9 @@ class DividendsImplTest extends DividendsImplTestBase {
         contextMock.when(() -> Context.call(eq(balnScore.getAddress()), eq("totalStakedBalanceOfAt"),
                 any(BigInteger.class))).thenReturn(totalStake);
 
-        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("balanceOfAt"), any(Address.class),
-                any(BigInteger.class), any(BigInteger.class))).thenReturn(BigInteger.valueOf(30).multiply(pow(BigInteger.TEN, 18)));
-        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("totalSupplyAt"), any(BigInteger.class),
-                any(BigInteger.class))).thenReturn(BigInteger.valueOf(50).multiply(pow(BigInteger.TEN, 18)));
-        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("totalBalnAt"), any(BigInteger.class),
-                any(BigInteger.class))).thenReturn(BigInteger.valueOf(80).multiply(pow(BigInteger.TEN, 18)));
+        mockPoolSnapshots(BigInteger.valueOf(30).multiply(pow(BigInteger.TEN, 18)),
+                BigInteger.valueOf(50).multiply(pow(BigInteger.TEN, 18)),
+                BigInteger.valueOf(80).multiply(pow(BigInteger.TEN, 18)));
 
 
         // Assert
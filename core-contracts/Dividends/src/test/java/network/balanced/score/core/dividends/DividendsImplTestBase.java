@@ -28,6 +28,8 @@ import score.Address;
 import score.Context;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.mockito.Mockito.*;
@@ -49,6 +51,7 @@ class DividendsImplTestBase extends UnitTest {
     protected static final Account stakingScore = Account.newScoreAccount(7);
     protected static final MockedStatic<Context> contextMock = Mockito.mockStatic(Context.class, Mockito.CALLS_REAL_METHODS);
     protected Score dividendScore;
+    protected DividendsImpl dividendsSpy;
     protected final MockedStatic.Verification getAssetTokens = () -> Context.call(eq(loansScore.getAddress()), eq("getAssetTokens"));
     protected final MockedStatic.Verification balanceOf = () -> Context.call(eq(balnScore.getAddress()), eq("balanceOf"), any(Address.class));
  
@@ -56,6 +59,23 @@ class DividendsImplTestBase extends UnitTest {
         dividendScore.invoke(bnUSDScore.getAccount(), "tokenFallback", bnUSDScore.getAddress(), amount, new byte[0]);
     }
 
+    protected void mockPoolSnapshots(BigInteger lpBalance, BigInteger totalLp, BigInteger totalBaln) {
+        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("balancesOfAt"), any(Address.class),
+                any(BigInteger[].class), any(BigInteger.class))).thenReturn(List.of(lpBalance, lpBalance));
+        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("balancesOfAccountsAt"),
+                any(Address[].class), any(BigInteger[].class), any(BigInteger.class))).thenAnswer(invocation -> {
+            Address[] accounts = invocation.getArgument(2);
+            List<List<BigInteger>> balances = new ArrayList<>();
+            for (int i = 0; i < accounts.length; i++) {
+                balances.add(List.of(lpBalance, lpBalance));
+            }
+            return balances;
+        });
+        Map<String, BigInteger> poolSnapshot = Map.of("totalSupply", totalLp, "totalBaln", totalBaln);
+        contextMock.when(() -> Context.call(eq(dexScore.getAddress()), eq("poolSnapshotsAt"),
+                any(BigInteger[].class), any(BigInteger.class))).thenReturn(List.of(poolSnapshot, poolSnapshot));
+    }
+
     protected BigInteger getDay() {
         return (BigInteger) dividendScore.call("getDay");
     }
@@ -73,7 +93,7 @@ class DividendsImplTestBase extends UnitTest {
         bnUSDScore.invoke(owner, "mint", MINT_AMOUNT);
         bnUSDScore.invoke(owner, "transfer", dividendScore.getAddress(), initialFees, new byte[0]);
 
-        DividendsImpl dividendsSpy = (DividendsImpl) spy(dividendScore.getInstance());
+        dividendsSpy = (DividendsImpl) spy(dividendScore.getInstance());
         dividendScore.setInstance(dividendsSpy);
     }
 
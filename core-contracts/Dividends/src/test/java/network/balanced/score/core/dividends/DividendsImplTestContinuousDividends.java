@@ -174,6 +174,104 @@ class DividendsImplTestContinuousDividends extends DividendsImplTestBase {
                 "getUnclaimedDividends", staker2.getAddress()));
     }
 
+    @Test
+    void claimDividends_syncsPendingStake() {
+        // Arrange
+        Account staker1 = sm.createAccount();
+        Account staker2 = sm.createAccount();
+        BigInteger stakerPercentage = getFeePercentage("baln_holders");
+
+        BigInteger staker1Balance = BigInteger.valueOf(150).multiply(ICX);
+        BigInteger staker2Balance = BigInteger.valueOf(50).multiply(ICX);
+        BigInteger totalStake = BigInteger.valueOf(200).multiply(ICX);
+        BigInteger staker2Increase = BigInteger.valueOf(100).multiply(ICX);
+
+        dividendScore.invoke(balnScore, "setBalnStakePullMode", true);
+        dividendScore.invoke(balnScore, "updateBalnStake", staker1.getAddress(), BigInteger.ZERO, staker1Balance);
+        dividendScore.invoke(balnScore, "updateBalnStake", staker2.getAddress(), BigInteger.ZERO, totalStake);
+
+        // The stake increase of staker2 is left pending in the BALN contract until it is synced
+        boolean[] synced = new boolean[]{false};
+        contextMock.when(() -> Context.call(BigInteger.class, balnScore.getAddress(), "getDividendsStake",
+                staker2.getAddress())).thenAnswer(invocation -> synced[0] ? staker2Balance.add(staker2Increase) :
+                staker2Balance);
+        contextMock.when(() -> Context.call(balnScore.getAddress(), "syncDividendsStake",
+                (Object) new Address[]{staker2.getAddress()})).thenAnswer(invocation -> {
+            dividendScore.invoke(balnScore, "updateBalnStake", staker2.getAddress(), staker2Balance,
+                    totalStake.add(staker2Increase));
+            synced[0] = true;
+            return null;
+        });
+
+        BigInteger expectedFees = BigInteger.TEN.pow(20);
+        BigInteger expectedStakingFees = expectedFees.multiply(stakerPercentage).divide(ICX);
+        addBnusdFeesAndMockDaoFund(expectedFees);
+        BigInteger staker2ExpectedFees = expectedStakingFees.multiply(staker2Balance).divide(totalStake);
+        contextMock.when(() -> Context.call(bnUSDScore.getAddress(), "transfer", staker2.getAddress(),
+                staker2ExpectedFees)).thenReturn("Token Transferred");
+
+        // Act
+        dividendScore.invoke(staker2, "claimDividends");
+
+        // Assert
+        contextMock.verify(() -> Context.call(balnScore.getAddress(), "syncDividendsStake",
+                (Object) new Address[]{staker2.getAddress()}));
+        contextMock.verify(() -> Context.call(bnUSDScore.getAddress(), "transfer", staker2.getAddress(),
+                staker2ExpectedFees));
+
+        expectedFees = BigInteger.TEN.pow(19);
+        expectedStakingFees = expectedFees.multiply(stakerPercentage).divide(ICX);
+        addBnusdFeesAndMockDaoFund(expectedFees);
+        BigInteger syncedTotalStake = totalStake.add(staker2Increase);
+        staker2ExpectedFees = expectedStakingFees.multiply(staker2Balance.add(staker2Increase)).divide(syncedTotalStake);
+        assertEquals(Map.of(bnUSDScore.getAddress().toString(), staker2ExpectedFees), dividendScore.call(
+                "getUnclaimedDividends", staker2.getAddress()));
+    }
+
+    @Test
+    void updateBalnStake_tokenAcceptedAfterFees() {
+        // Arrange
+        Account staker1 = sm.createAccount();
+        Account staker2 = sm.createAccount();
+        BigInteger stakerPercentage = getFeePercentage("baln_holders");
+        BigInteger staker1Balance = BigInteger.valueOf(150).multiply(ICX);
+        BigInteger staker2Balance = BigInteger.valueOf(50).multiply(ICX);
+        BigInteger totalStake = BigInteger.valueOf(200).multiply(ICX);
+
+        dividendScore.invoke(balnScore, "updateBalnStake", staker1.getAddress(), BigInteger.ZERO, staker1Balance);
+
+        // Act
+        BigInteger feesBeforeAcceptance = BigInteger.TEN.pow(20);
+        addBalnFeesAndMockDaoFund(feesBeforeAcceptance);
+        dividendScore.invoke(balnScore, "updateBalnStake", staker2.getAddress(), BigInteger.ZERO, totalStake);
+        dividendScore.invoke(admin, "addAcceptedTokens", balnScore.getAddress());
+
+        BigInteger feesAfterAcceptance = BigInteger.TEN.pow(19);
+        addBalnFeesAndMockDaoFund(feesAfterAcceptance);
+
+        // Assert
+        BigInteger expectedStakingFees = feesAfterAcceptance.multiply(stakerPercentage).divide(ICX);
+        BigInteger staker1ExpectedFees = expectedStakingFees.multiply(staker1Balance).divide(totalStake);
+        BigInteger staker2ExpectedFees = expectedStakingFees.multiply(staker2Balance).divide(totalStake);
+
+        mockStake(staker1.getAddress(), staker1Balance);
+        mockStake(staker2.getAddress(), staker2Balance);
+        Map<String, BigInteger> staker1Dividends = (Map<String, BigInteger>) dividendScore.call(
+                "getUnclaimedDividends", staker1.getAddress());
+        Map<String, BigInteger> staker2Dividends = (Map<String, BigInteger>) dividendScore.call(
+                "getUnclaimedDividends", staker2.getAddress());
+        assertEquals(staker1ExpectedFees, staker1Dividends.get(balnScore.getAddress().toString()));
+        assertEquals(staker2ExpectedFees, staker2Dividends.get(balnScore.getAddress().toString()));
+    }
+
+    private void addBalnFeesAndMockDaoFund(BigInteger amount) {
+        BigInteger daofundPercentage = getFeePercentage("daofund");
+        BigInteger expectedDaofundFees = amount.multiply(daofundPercentage).divide(ICX);
+        contextMock.when(() -> Context.call(balnScore.getAddress(), "transfer", daoScore.getAddress(),
+                expectedDaofundFees)).thenReturn("Token Transferred");
+        dividendScore.invoke(balnScore, "tokenFallback", balnScore.getAddress(), amount, new byte[0]);
+    }
+
     private void addBnusdFeesAndMockDaoFund(BigInteger amount) {
         BigInteger daofundPercentage = getFeePercentage("daofund");
         BigInteger expectedDaofundFees = amount.multiply(daofundPercentage).divide(ICX);
@@ -182,7 +280,7 @@ class DividendsImplTestContinuousDividends extends DividendsImplTestBase {
     }
 
     private void mockStake(Address user, BigInteger stake) {
-        contextMock.when(() -> Context.call(BigInteger.class, balnScore.getAddress(), "stakedBalanceOf", user)).thenReturn(stake);
+        contextMock.when(() -> Context.call(BigInteger.class, balnScore.getAddress(), "getDividendsStake", user)).thenReturn(stake);
     }
 
     private void mockDaoFundTranfer(BigInteger amount) {
@@ -27,6 +27,7 @@ import score.Context;
 
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -135,6 +136,146 @@ class DividendsImplTestContinuousMigration extends DividendsImplTestBase {
         assertEquals(Map.of(), dividendScore.call("getUserDividends", staker2.getAddress(), day.intValue(), day.intValue()+1));
     }
 
+    @Test
+    void claimLeavesLegacyDaysToPrecompute() {
+        // Arrange
+        BigInteger day = getDay();
+        Account staker = sm.createAccount();
+        dividendScore.invoke(owner, "setContinuousDividendsDay", day.add(BigInteger.ONE));
+
+        BigInteger expectedFees = BigInteger.TEN.pow(20);
+        addBnusdFees(expectedFees);
+        BigInteger stakerPercentage = getFeePercentage("baln_holders");
+        BigInteger daofundPercentage = getFeePercentage("daofund");
+        BigInteger expectedStakingFees = expectedFees.multiply(stakerPercentage).divide(ICX);
+
+        BigInteger stakerBalance = BigInteger.valueOf(150).multiply(ICX);
+        dividendScore.invoke(balnScore, "updateBalnStake", staker.getAddress(), BigInteger.ZERO, stakerBalance);
+
+        sm.getBlock().increase(DAY);
+        dividendScore.invoke(owner, "distribute");
+
+        mockEmptyLegacyDays();
+        mockStakeAt(staker.getAddress(), day, stakerBalance);
+        mockStake(staker.getAddress(), stakerBalance);
+        mockTotalSupplyAt(day, stakerBalance);
+
+        BigInteger expectedDaofundFees = expectedFees.multiply(daofundPercentage).divide(ICX);
+        mockDaoFundTranfer(expectedDaofundFees);
+        addBnusdFees(expectedFees);
+
+        contextMock.when(() -> Context.call(bnUSDScore.getAddress(), "transfer", staker.getAddress(),
+                expectedStakingFees)).thenReturn("Token Transferred");
+
+        // Act
+        dividendScore.invoke(staker, "claim", 0, 0);
+
+        // Assert
+        contextMock.verify(() -> Context.call(bnUSDScore.getAddress(), "transfer", staker.getAddress(),
+                expectedStakingFees));
+        verify(dividendsSpy, never()).Claimed(eq(staker.getAddress()), any(BigInteger.class),
+                any(BigInteger.class), any(String.class));
+        assertEquals(BigInteger.ONE, dividendScore.call("getLegacyDividendsDay", staker.getAddress()));
+        assertEquals(Map.of(bnUSDScore.getAddress().toString(), expectedStakingFees), dividendScore.call(
+                "getUserDividends", staker.getAddress(), day.intValue(), day.intValue() + 1));
+    }
+
+    @Test
+    void claimFoldsRequestedLegacyRange() {
+        // Arrange
+        BigInteger day = getDay();
+        Account staker = sm.createAccount();
+        dividendScore.invoke(owner, "setContinuousDividendsDay", day.add(BigInteger.ONE));
+
+        BigInteger expectedFees = BigInteger.TEN.pow(20);
+        addBnusdFees(expectedFees);
+        BigInteger stakerPercentage = getFeePercentage("baln_holders");
+        BigInteger daofundPercentage = getFeePercentage("daofund");
+        BigInteger expectedStakingFees = expectedFees.multiply(stakerPercentage).divide(ICX);
+
+        BigInteger stakerBalance = BigInteger.valueOf(150).multiply(ICX);
+        dividendScore.invoke(balnScore, "updateBalnStake", staker.getAddress(), BigInteger.ZERO, stakerBalance);
+
+        sm.getBlock().increase(DAY);
+        dividendScore.invoke(owner, "distribute");
+
+        mockEmptyLegacyDays();
+        mockStakeAt(staker.getAddress(), day, stakerBalance);
+        mockStake(staker.getAddress(), stakerBalance);
+        mockTotalSupplyAt(day, stakerBalance);
+
+        BigInteger expectedDaofundFees = expectedFees.multiply(daofundPercentage).divide(ICX);
+        mockDaoFundTranfer(expectedDaofundFees);
+        addBnusdFees(expectedFees);
+
+        BigInteger expectedClaim = expectedStakingFees.multiply(BigInteger.TWO);
+        contextMock.when(() -> Context.call(bnUSDScore.getAddress(), "transfer", staker.getAddress(),
+                expectedClaim)).thenReturn("Token Transferred");
+
+        // Act
+        dividendScore.invoke(staker, "claim", day.intValue(), day.intValue() + 1);
+
+        // Assert
+        contextMock.verify(() -> Context.call(bnUSDScore.getAddress(), "transfer", staker.getAddress(),
+                expectedClaim));
+        verify(dividendsSpy).Claimed(staker.getAddress(), day, day.add(BigInteger.ONE),
+                "{'" + bnUSDScore.getAddress() + "': " + expectedStakingFees + "}");
+        assertEquals(BigInteger.ONE, dividendScore.call("getLegacyDividendsDay", staker.getAddress()));
+        assertEquals(Map.of(), dividendScore.call("getUserDividends", staker.getAddress(), day.intValue(),
+                day.intValue() + 1));
+    }
+
+    @Test
+    void precomputeLegacyDividends() {
+        // Arrange
+        BigInteger day = getDay();
+        Account staker1 = sm.createAccount();
+        Account staker2 = sm.createAccount();
+        dividendScore.invoke(owner, "setContinuousDividendsDay", day.add(BigInteger.ONE));
+        dividendScore.invoke(admin, "addLegacyStakers", (Object) new Address[]{staker1.getAddress(),
+                staker2.getAddress()});
+
+        BigInteger expectedFees = BigInteger.TEN.pow(20);
+        addBnusdFees(expectedFees);
+        BigInteger stakerPercentage = getFeePercentage("baln_holders");
+        BigInteger expectedStakingFees = expectedFees.multiply(stakerPercentage).divide(ICX);
+
+        BigInteger staker1Balance = BigInteger.valueOf(150).multiply(ICX);
+        BigInteger staker2Balance = BigInteger.valueOf(50).multiply(ICX);
+        BigInteger totalStake = BigInteger.valueOf(200).multiply(ICX);
+        BigInteger expectedStaker1Fees = expectedStakingFees.multiply(staker1Balance).divide(totalStake);
+        BigInteger expectedStaker2Fees = expectedStakingFees.multiply(staker2Balance).divide(totalStake);
+
+        sm.getBlock().increase(DAY);
+        dividendScore.invoke(owner, "distribute");
+
+        mockEmptyLegacyDays();
+        contextMock.when(() -> Context.call(eq(balnScore.getAddress()), eq("stakedBalancesOfAt"),
+                any(Address[].class), eq(day))).thenReturn(List.of(staker1Balance, staker2Balance));
+        mockStake(staker1.getAddress(), BigInteger.ZERO);
+        mockStake(staker2.getAddress(), BigInteger.ZERO);
+        mockTotalSupplyAt(day, totalStake);
+
+        // Act
+        BigInteger snapshotId = (BigInteger) dividendScore.call("getSnapshotId");
+        while (((BigInteger) dividendScore.call("getLegacyDividendsDay", staker1.getAddress())).compareTo(snapshotId) < 0) {
+            dividendScore.invoke(owner, "precomputeLegacyDividends", 0);
+        }
+
+        // Assert
+        assertEquals(snapshotId, dividendScore.call("getLegacyDividendsDay", staker2.getAddress()));
+        assertEquals(Map.of(bnUSDScore.getAddress().toString(), expectedStaker1Fees), dividendScore.call(
+                "getUnclaimedDividends", staker1.getAddress()));
+        assertEquals(Map.of(bnUSDScore.getAddress().toString(), expectedStaker2Fees), dividendScore.call(
+                "getUnclaimedDividends", staker2.getAddress()));
+        assertEquals(Map.of(), dividendScore.call("getUserDividends", staker1.getAddress(), day.intValue(),
+                day.intValue() + 1));
+
+        Executable addAfterStart = () -> dividendScore.invoke(admin, "addLegacyStakers",
+                (Object) new Address[]{owner.getAddress()});
+        expectErrorMessage(addAfterStart, "Legacy dividends precompute has already started.");
+    }
+
     @Test
     void migrateDividendsDaoFund() {
         // Arrange
@@ -180,12 +321,20 @@ class DividendsImplTestContinuousMigration extends DividendsImplTestBase {
         assertEquals(snapshotID, dividendScore.call("getSnapshotId"));       
     }
 
+    private void mockEmptyLegacyDays() {
+        contextMock.when(() -> Context.call(eq(balnScore.getAddress()), eq("stakedBalanceOfAt"), any(Address.class),
+                any(BigInteger.class))).thenReturn(BigInteger.ZERO);
+        contextMock.when(() -> Context.call(eq(balnScore.getAddress()), eq("totalStakedBalanceOfAt"),
+                any(BigInteger.class))).thenReturn(BigInteger.ZERO);
+        mockPoolSnapshots(BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO);
+    }
+
     private void mockStakeAt(Address user, BigInteger day, BigInteger stake) {
         contextMock.when(() -> Context.call(balnScore.getAddress(), "stakedBalanceOfAt", user, day)).thenReturn(stake);
     }
 
     private void mockStake(Address user, BigInteger stake) {
-        contextMock.when(() -> Context.call(BigInteger.class, balnScore.getAddress(), "stakedBalanceOf", user)).thenReturn(stake);
+        contextMock.when(() -> Context.call(BigInteger.class, balnScore.getAddress(), "getDividendsStake", user)).thenReturn(stake);
     }
 
     private void mockTotalSupplyAt(BigInteger day, BigInteger supply) {
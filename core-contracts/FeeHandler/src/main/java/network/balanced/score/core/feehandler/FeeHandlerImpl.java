@@ -20,6 +20,7 @@ import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonValue;
 import network.balanced.score.lib.interfaces.FeeHandler;
+import network.balanced.score.lib.utils.TokenFallbackData;
 import score.*;
 import score.annotation.External;
 import score.annotation.Optional;
@@ -364,11 +365,7 @@ public class FeeHandlerImpl implements FeeHandler {
     }
 
     private byte[] createDataFieldDex(Address _toToken, Address _receiver) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("method", "_swap");
-        map.put("params", Map.of("toToken", _toToken.toString(), "receiver", _receiver.toString()));
-        String data = map.toString();
-        return data.getBytes();
+        return TokenFallbackData.swap(_toToken, BigInteger.ZERO, _receiver);
     }
 
     private Address getContractAddress(String _contract) {
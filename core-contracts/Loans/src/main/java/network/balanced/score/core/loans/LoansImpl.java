@@ -30,6 +30,7 @@ import network.balanced.score.core.loans.utils.Token;
 import network.balanced.score.lib.interfaces.Loans;
 import network.balanced.score.lib.structs.PrepDelegations;
 import network.balanced.score.lib.structs.RewardsDataEntry;
+import network.balanced.score.lib.utils.TokenFallbackData;
 import score.Address;
 import score.Context;
 import score.annotation.EventLog;
@@ -48,6 +49,7 @@ import static network.balanced.score.core.loans.utils.Checks.loansOn;
 import static network.balanced.score.core.loans.utils.Checks.*;
 import static network.balanced.score.core.loans.utils.LoansConstants.*;
 import static network.balanced.score.lib.utils.Check.*;
+import static network.balanced.score.lib.utils.FixedPoint.mulDiv;
 import static network.balanced.score.lib.utils.Math.convertToNumber;
 
 public class LoansImpl implements Loans {
@@ -303,6 +305,12 @@ public class LoansImpl implements Loans {
 
         Token assetContract = new Token(_token_address);
         AssetAdded(_token_address, assetContract.symbol(), _collateral);
+
+        // Dividends only takes fees in the assets it has accepted, which it reads from here
+        Address dividendsAddress = dividends.get();
+        if (dividendsAddress != null) {
+            Context.call(dividendsAddress, "updateAcceptedTokens");
+        }
     }
 
     @External
@@ -437,6 +445,14 @@ public class LoansImpl implements Loans {
         Context.require(token.equals(AssetDB.getAsset(SICX_SYMBOL).getAssetAddress()), TAG + ": The Balanced Loans " +
                 "contract does not accept that token type.");
 
+        if (TokenFallbackData.isBinary(_data)) {
+            TokenFallbackData data = TokenFallbackData.decode(_data);
+            Context.require(data.getMethod().equals(TokenFallbackData.DEPOSIT_AND_BORROW), TAG + ": Unsupported method " +
+                    data.getMethod());
+            depositAndBorrow(data.getAsset(), data.getAmount(), _from, _value);
+            return;
+        }
+
         String unpackedData = new String(_data);
         Context.require(!unpackedData.equals(""), TAG + ": Token Fallback: Data can't be empty");
 
@@ -625,7 +641,7 @@ public class LoansImpl implements Loans {
             BigInteger userDebt = entry.getValue();
             Position position = PositionsDB.get(id);
 
-            BigInteger loanShare = remainingBnusd.multiply(userDebt).divide(remainingSupply);
+            BigInteger loanShare = mulDiv(remainingBnusd, userDebt, remainingSupply);
             remainingBnusd = remainingBnusd.subtract(loanShare);
             position.setAssetPosition(BNUSD_SYMBOL, userDebt.subtract(loanShare));
 
@@ -704,7 +720,7 @@ public class LoansImpl implements Loans {
             int id = entry.getKey();
             BigInteger userDebt = entry.getValue();
             Position position = PositionsDB.get(id);
-            BigInteger loanShare = remainingBnusd.multiply(userDebt).divide(remainingSupply);
+            BigInteger loanShare = mulDiv(remainingBnusd, userDebt, remainingSupply);
             remainingBnusd = remainingBnusd.subtract(loanShare);
             position.setAssetPosition(BNUSD_SYMBOL, userDebt.add(loanShare));
 
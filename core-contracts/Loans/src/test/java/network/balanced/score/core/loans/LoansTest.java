@@ -31,6 +31,7 @@ import static network.balanced.score.core.loans.utils.LoansConstants.StandingsMa
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @DisplayName("Loans Tests")
@@ -51,6 +52,12 @@ class LoansTest extends LoansTestBase {
         assertTrue(!loansOn);
     }
 
+    @Test
+    void addAssetUpdatesDividendsAcceptedTokens() {
+        // bnUSD and sICX are added during setup
+        verify(dividends.mock, times(2)).updateAcceptedTokens();
+    }
+
     @Test
     void getDistributionsDone() {
         Map<String, Boolean> rewardsDoneMap =  (Map<String, Boolean>)loans.call("getDistributionsDone");
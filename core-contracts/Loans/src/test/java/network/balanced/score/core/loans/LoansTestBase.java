@@ -254,7 +254,6 @@ class LoansTestBase extends UnitTest {
 
         governanceCall("turnLoansOn");
         loans.invoke(admin, "setRewards", rewards.getAddress());
-        loans.invoke(admin, "setDividends", rewards.getAddress());
         loans.invoke(admin, "setReserve", reserve.getAddress());
         governanceCall("setContinuousRewardsDay", BigInteger.valueOf(100000));
         sicx.invoke(admin, "setMinter", staking.getAddress());
@@ -26,6 +26,7 @@ import java.util.Map;
 import static network.balanced.score.core.rewards.utils.Check.continuousRewardsActive;
 import static network.balanced.score.lib.utils.Constants.EXA;
 import static network.balanced.score.lib.utils.Constants.MICRO_SECONDS_IN_A_DAY;
+import static network.balanced.score.lib.utils.FixedPoint.mulDiv;
 
 public class DataSourceImpl {
     private final BranchDB<String, VarDB<Address>> contractAddress = Context.newBranchDB("contract_address",
@@ -166,12 +167,16 @@ public class DataSourceImpl {
         return accruedRewards;
     }
 
+    /**
+     * @param weightDenominator MICRO_SECONDS_IN_A_DAY * totalSupply, computed once per update. Dividing once by the
+     *                          product gives the same result as dividing by each factor in turn.
+     */
     private BigInteger computeTotalWeight(BigInteger previousTotalWeight,
                                           BigInteger emission,
-                                          BigInteger totalSupply,
+                                          BigInteger weightDenominator,
                                           BigInteger lastUpdateTime,
                                           BigInteger currentTime) {
-        if (emission.equals(BigInteger.ZERO) || totalSupply.equals(BigInteger.ZERO)) {
+        if (emission.equals(BigInteger.ZERO) || weightDenominator.equals(BigInteger.ZERO)) {
             return previousTotalWeight;
         }
 
@@ -180,7 +185,7 @@ public class DataSourceImpl {
             return previousTotalWeight;
         }
 
-        BigInteger weightDelta = emission.multiply(timeDelta).multiply(EXA).divide(MICRO_SECONDS_IN_A_DAY).divide(totalSupply);
+        BigInteger weightDelta = mulDiv(emission.multiply(timeDelta), EXA, weightDenominator);
 
         return previousTotalWeight.add(weightDelta);
     }
@@ -199,6 +204,7 @@ public class DataSourceImpl {
         // Emit rewards based on the time delta * reward rate
         BigInteger previousRewardsDay;
         BigInteger previousDayEndUs;
+        BigInteger weightDenominator = MICRO_SECONDS_IN_A_DAY.multiply(totalSupply);
 
         while (lastUpdateTimestamp.compareTo(currentTime) < 0) {
             previousRewardsDay = lastUpdateTimestamp.divide(MICRO_SECONDS_IN_A_DAY);
@@ -206,7 +212,7 @@ public class DataSourceImpl {
             BigInteger endComputeTimestampUs = previousDayEndUs.min(currentTime);
 
             BigInteger emission = getTotalDist(previousRewardsDay);
-            runningTotal = computeTotalWeight(runningTotal, emission, totalSupply, lastUpdateTimestamp,
+            runningTotal = computeTotalWeight(runningTotal, emission, weightDenominator, lastUpdateTimestamp,
                     endComputeTimestampUs);
             lastUpdateTimestamp = endComputeTimestampUs;
         }
@@ -21,6 +21,7 @@ import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
 import network.balanced.score.lib.interfaces.Router;
+import network.balanced.score.lib.utils.TokenFallbackData;
 import score.Address;
 import score.Context;
 import score.UserRevertException;
@@ -130,18 +131,12 @@ public class RouterImpl implements Router {
             Context.transfer(staking.get(), balance);
         } else if (toToken == null) {
             Context.require(fromToken.equals(sicx.get()), TAG + ": ICX can only be traded with sICX token");
-            JsonObject data = new JsonObject();
-            data.add("method", "_swap_icx");
             BigInteger balance = (BigInteger) Context.call(fromToken, "balanceOf", Context.getAddress());
-            Context.call(fromToken, "transfer", dex.get(), balance, data.toString().getBytes());
+            Context.call(fromToken, "transfer", dex.get(), balance, TokenFallbackData.swapIcx());
         } else {
-            JsonObject params = new JsonObject();
-            params.add("toToken", toToken.toString());
-            JsonObject data = new JsonObject();
-            data.add("method", "_swap");
-            data.add("params", params);
             BigInteger balance = (BigInteger) Context.call(fromToken, "balanceOf", Context.getAddress());
-            Context.call(fromToken, "transfer", dex.get(), balance, data.toString().getBytes());
+            Context.call(fromToken, "transfer", dex.get(), balance, TokenFallbackData.swap(toToken, BigInteger.ZERO,
+                    null));
         }
     }
 
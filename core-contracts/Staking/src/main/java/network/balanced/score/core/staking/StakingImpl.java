@@ -17,11 +17,13 @@
 package network.balanced.score.core.staking;
 
 import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
 import network.balanced.score.core.staking.db.DelegationListDBSdo;
 import network.balanced.score.core.staking.db.LinkedListDB;
 import network.balanced.score.core.staking.db.NodeDB;
+import network.balanced.score.core.staking.db.PrepRegistryDB;
 import network.balanced.score.core.staking.utils.Constant;
 import network.balanced.score.core.staking.utils.UnstakeDetails;
 import network.balanced.score.lib.interfaces.Staking;
@@ -42,25 +44,65 @@ import static network.balanced.score.core.staking.db.LinkedListDB.DEFAULT_NODE_I
 import static network.balanced.score.core.staking.utils.Checks.onlyOwner;
 import static network.balanced.score.core.staking.utils.Checks.stakingOn;
 import static network.balanced.score.core.staking.utils.Constant.*;
+import static network.balanced.score.lib.utils.Math.convertToNumber;
 
 public class StakingImpl implements Staking {
 
     private final VarDB<BigInteger> rate = Context.newVarDB(RATE, BigInteger.class);
+    // Block heights at which the rate changed, in ascending order, and the rate set at each of them
+    private final ArrayDB<BigInteger> rateCheckpointBlocks = Context.newArrayDB(RATE_CHECKPOINT_BLOCKS,
+            BigInteger.class);
+    private final DictDB<BigInteger, BigInteger> rateCheckpoints = Context.newDictDB(RATE_CHECKPOINTS,
+            BigInteger.class);
     private final VarDB<BigInteger> blockHeightWeek = Context.newVarDB(BLOCK_HEIGHT_WEEK, BigInteger.class);
     private final VarDB<Address> sicxAddress = Context.newVarDB(SICX_ADDRESS, Address.class);
     private final VarDB<BigInteger> totalStake = Context.newVarDB(TOTAL_STAKE, BigInteger.class);
     private final VarDB<BigInteger> totalLifetimeReward = Context.newVarDB(TOTAL_LIFETIME_REWARD, BigInteger.class);
     private final VarDB<BigInteger> totalUnstakeAmount = Context.newVarDB(TOTAL_UNSTAKE_AMOUNT, BigInteger.class);
     private final ArrayDB<Address> topPreps = Context.newArrayDB(TOP_PREPS, Address.class);
+    // Slot of each top prep in topPreps, offset by one so that zero means not a top prep.
+    private final DictDB<Address, Integer> topPrepIndex = Context.newDictDB(TOP_PREP_INDEX, Integer.class);
     private final VarDB<BigInteger> icxToClaim = Context.newVarDB(ICX_TO_CLAIM, BigInteger.class);
     private final DictDB<Address, BigInteger> icxPayable = Context.newDictDB(ICX_PAYABLE, BigInteger.class);
     private final VarDB<BigInteger> unstakeBatchLimit = Context.newVarDB(UNSTAKE_BATCH_LIMIT, BigInteger.class);
     public static final VarDB<Boolean> stakingOn = Context.newVarDB(STAKING_ON, Boolean.class);
     private final LinkedListDB unstakeRequestList = new LinkedListDB(UNSTAKE_DICT);
+    // Running totals of ICX ever queued for unstaking and ever released to the queue. A request is claimable for
+    // the part of [queuePosition, queuePosition + value) that lies below the released total.
+    private final VarDB<BigInteger> unstakeQueuedTotal = Context.newVarDB(UNSTAKE_QUEUED_TOTAL, BigInteger.class);
+    private final VarDB<BigInteger> unstakeReleasedTotal = Context.newVarDB(UNSTAKE_RELEASED_TOTAL,
+            BigInteger.class);
+    // Requests of each receiver in queue order. Requests ahead of the cursor are fully released and settled, their
+    // ICX is added to the settled total, and the claimed total holds what has been paid out of the settled requests
+    // and the partly released one at the cursor.
+    private final BranchDB<Address, ArrayDB<BigInteger>> userUnstakeRequests =
+            Context.newBranchDB(USER_UNSTAKE_REQUESTS, BigInteger.class);
+    private final DictDB<Address, Integer> userUnstakeCursor = Context.newDictDB(USER_UNSTAKE_CURSOR, Integer.class);
+    private final DictDB<Address, BigInteger> userUnstakeSettled = Context.newDictDB(USER_UNSTAKE_SETTLED,
+            BigInteger.class);
+    private final DictDB<Address, BigInteger> userUnstakeClaimed = Context.newDictDB(USER_UNSTAKE_CLAIMED,
+            BigInteger.class);
+    // Next request of the queue that has not been given a queue position yet, zero once every request has one
+    private final VarDB<BigInteger> unstakeMigrationCursor = Context.newVarDB(UNSTAKE_MIGRATION_CURSOR,
+            BigInteger.class);
+    // Delegations stored before the compact encoding, read as a fallback until the user has been migrated
     private final DictDB<Address, DelegationListDBSdo> userDelegationInPercentage =
             Context.newDictDB(USER_DELEGATION_PERCENTAGE, DelegationListDBSdo.class);
-    private final VarDB<DelegationListDBSdo> prepDelegationInIcx = Context.newVarDB(PREP_DELEGATION_ICX,
+    // Set once sICX has been told about the custom delegations of all known legacy users
+    private final VarDB<Boolean> legacyDelegationsMigrated = Context.newVarDB(LEGACY_DELEGATIONS_MIGRATED,
+            Boolean.class);
+    private final DictDB<Address, byte[]> userDelegations = Context.newDictDB(USER_DELEGATIONS, byte[].class);
+    private final PrepRegistryDB prepRegistry = new PrepRegistryDB(PREP_REGISTRY);
+    // Delegations specified by users, kept as shares of the ICX index below so that rewards only move the index.
+    // The weights of all preps are packed in this one entry, which a delegation update reads and writes once.
+    private final VarDB<DelegationListDBSdo> prepDelegationShares = Context.newVarDB(PREP_DELEGATION_ICX,
             DelegationListDBSdo.class);
+    private final VarDB<BigInteger> prepDelegationIndex = Context.newVarDB(PREP_DELEGATION_INDEX, BigInteger.class);
+    private final VarDB<BigInteger> lastReconciledBlock = Context.newVarDB(LAST_RECONCILED_BLOCK, BigInteger.class);
+    private final VarDB<BigInteger> delegationThreshold = Context.newVarDB(DELEGATION_THRESHOLD, BigInteger.class);
+    private final VarDB<BigInteger> pendingDelegationChange = Context.newVarDB(PENDING_DELEGATION_CHANGE,
+            BigInteger.class);
+    private final VarDB<BigInteger> lastDelegationBlock = Context.newVarDB(LAST_DELEGATION_BLOCK, BigInteger.class);
 
     public StakingImpl() {
 
@@ -69,14 +111,29 @@ public class StakingImpl implements Staking {
             Map<String, Object> termDetails = (Map<String, Object>) Context.call(SYSTEM_SCORE_ADDRESS, "getIISSInfo");
             BigInteger nextPrepTerm = (BigInteger) termDetails.get("nextPRepTerm");
             blockHeightWeek.set(nextPrepTerm);
-            rate.set(ONE_EXA);
+            setRate(ONE_EXA);
             setTopPreps();
             unstakeBatchLimit.set(DEFAULT_UNSTAKE_BATCH_LIMIT);
             stakingOn.set(false);
+            unstakeQueuedTotal.set(BigInteger.ZERO);
         } else {
+            if (unstakeQueuedTotal.get() == null) {
+                // Existing requests are given their queue positions in batches through migrateUnstakeQueue
+                unstakeQueuedTotal.set(BigInteger.ZERO);
+                unstakeReleasedTotal.set(BigInteger.ZERO);
+                unstakeMigrationCursor.set(unstakeRequestList.headId.getOrDefault(DEFAULT_NODE_ID));
+            }
+            if (rateCheckpointBlocks.size() == 0) {
+                setRate(getTodayRate());
+            }
+            if (topPreps.size() > 0 && topPrepIndex.get(topPreps.get(0)) == null) {
+                int topPrepsCount = topPreps.size();
+                for (int i = 0; i < topPrepsCount; i++) {
+                    topPrepIndex.set(topPreps.get(i), i + 1);
+                }
+            }
             BigInteger stakedAmount = totalStake.getOrDefault(BigInteger.ZERO);
-            Map<String, BigInteger> prepDelegations = prepDelegationInIcx.getOrDefault(DEFAULT_DELEGATION_LIST).toMap();
-            stakeAndDelegateInNetwork(stakedAmount, prepDelegations);
+            stakeAndDelegateInNetwork(stakedAmount, getPrepDelegationShares());
         }
     }
 
@@ -101,6 +158,10 @@ public class StakingImpl implements Staking {
     public void UnstakeAmountTransfer(Address receiver, BigInteger amount) {
     }
 
+    @EventLog(indexed = 1)
+    public void RateUpdated(BigInteger block_height, BigInteger rate) {
+    }
+
     @EventLog(indexed = 2)
     public void IscoreClaimed(BigInteger block_height, BigInteger rewards) {
     }
@@ -127,6 +188,36 @@ public class StakingImpl implements Staking {
         return rate.getOrDefault(ONE_EXA);
     }
 
+    @External(readonly = true)
+    public BigInteger getRateAt(BigInteger _blockHeight) {
+        int checkpointsCount = rateCheckpointBlocks.size();
+        Context.require(checkpointsCount > 0 && rateCheckpointBlocks.get(0).compareTo(_blockHeight) <= 0,
+                TAG + ": No rate recorded at or before block " + _blockHeight + ".");
+
+        int low = 0;
+        int high = checkpointsCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) / 2;
+            if (rateCheckpointBlocks.get(mid).compareTo(_blockHeight) <= 0) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return rateCheckpoints.get(rateCheckpointBlocks.get(low));
+    }
+
+    private void setRate(BigInteger newRate) {
+        rate.set(newRate);
+        BigInteger blockHeight = BigInteger.valueOf(Context.getBlockHeight());
+        int checkpointsCount = rateCheckpointBlocks.size();
+        if (checkpointsCount == 0 || !rateCheckpointBlocks.get(checkpointsCount - 1).equals(blockHeight)) {
+            rateCheckpointBlocks.add(blockHeight);
+        }
+        rateCheckpoints.set(blockHeight, newRate);
+        RateUpdated(blockHeight, newRate);
+    }
+
     @External
     public void toggleStakingOn() {
         onlyOwner();
@@ -162,12 +253,64 @@ public class StakingImpl implements Staking {
         return unstakeBatchLimit.get();
     }
 
+    @External
+    public void migrateUnstakeQueue(@Optional int _limit) {
+        onlyOwner();
+        BigInteger nodeId = unstakeMigrationCursor.getOrDefault(DEFAULT_NODE_ID);
+        Context.require(!nodeId.equals(DEFAULT_NODE_ID), TAG + ": Unstake queue already migrated.");
+
+        int limit = _limit > 0 ? _limit : unstakeBatchLimit.getOrDefault(DEFAULT_UNSTAKE_BATCH_LIMIT).intValue();
+        BigInteger tailId = unstakeRequestList.tailId.getOrDefault(DEFAULT_NODE_ID);
+        BigInteger queuedTotal = unstakeQueuedTotal.getOrDefault(BigInteger.ZERO);
+        for (int i = 0; i < limit && !nodeId.equals(DEFAULT_NODE_ID); i++) {
+            NodeDB node = unstakeRequestList.getNode(nodeId);
+            node.setQueuePosition(queuedTotal);
+            userUnstakeRequests.at(node.getSenderAddress()).add(nodeId);
+            queuedTotal = queuedTotal.add(node.getValue());
+            nodeId = nodeId.equals(tailId) ? DEFAULT_NODE_ID : node.getNext();
+        }
+        unstakeQueuedTotal.set(queuedTotal);
+        unstakeMigrationCursor.set(nodeId);
+    }
+
+    @External(readonly = true)
+    public BigInteger getUnstakeMigrationCursor() {
+        return unstakeMigrationCursor.getOrDefault(DEFAULT_NODE_ID);
+    }
+
+    @External
+    public void setDelegationThreshold(BigInteger _threshold) {
+        onlyOwner();
+        Context.require(_threshold.signum() >= 0, TAG + ": Delegation threshold can't be negative.");
+        delegationThreshold.set(_threshold);
+    }
+
+    @External(readonly = true)
+    public BigInteger getDelegationThreshold() {
+        return delegationThreshold.getOrDefault(DEFAULT_DELEGATION_THRESHOLD);
+    }
+
+    @External(readonly = true)
+    public BigInteger getPendingDelegationChange() {
+        return pendingDelegationChange.getOrDefault(BigInteger.ZERO);
+    }
+
+    @External
+    public void submitDelegation() {
+        stakingOn();
+        Context.require(getPendingDelegationChange().signum() > 0, TAG + ": No pending delegation change.");
+        BigInteger blockHeight = BigInteger.valueOf(Context.getBlockHeight());
+        Context.require(!blockHeight.equals(lastDelegationBlock.get()),
+                TAG + ": Delegation already submitted in this block.");
+        updateDelegationInNetwork(getPrepDelegationShares(), updateTopPreps(), getTotalStake());
+    }
+
     @External(readonly = true)
     public List<Address> getPrepList() {
         List<Address> topPreps = getTopPreps();
-        Map<String, BigInteger> prepDelegations = prepDelegationInIcx.getOrDefault(DEFAULT_DELEGATION_LIST).toMap();
+        Map<String, BigInteger> prepDelegations = getPrepDelegationShares();
         for (String prep : prepDelegations.keySet()) {
-            if (!topPreps.contains(Address.fromString(prep))) {
+            if (!isTopPrep(Address.fromString(prep))) {
                 topPreps.add(Address.fromString(prep));
             }
         }
@@ -202,8 +345,7 @@ public class StakingImpl implements Staking {
 
     @External(readonly = true)
     public Map<String, BigInteger> getPrepDelegations() {
-        Map<String, BigInteger> prepDelegationInIcx =
-                this.prepDelegationInIcx.getOrDefault(DEFAULT_DELEGATION_LIST).toMap();
+        Map<String, BigInteger> prepDelegationInIcx = sharesToIcx(getPrepDelegationShares());
         BigInteger specifiedIcxSum = BigInteger.ZERO;
         List<Address> addressInSpecification = new ArrayList<>();
         for (Map.Entry<String, BigInteger> prepDelegation : prepDelegationInIcx.entrySet()) {
@@ -236,17 +378,17 @@ public class StakingImpl implements Staking {
 
     @External(readonly = true)
     public Map<String, BigInteger> getActualPrepDelegations() {
-        return prepDelegationInIcx.getOrDefault(DEFAULT_DELEGATION_LIST).toMap();
+        return sharesToIcx(getPrepDelegationShares());
     }
 
     @External(readonly = true)
     public Map<String, BigInteger> getActualUserDelegationPercentage(Address user) {
-        return userDelegationInPercentage.getOrDefault(user, DEFAULT_DELEGATION_LIST).toMap();
+        return getUserDelegations(user);
     }
 
     @External(readonly = true)
     public BigInteger claimableICX(Address _address) {
-        return icxPayable.getOrDefault(_address, BigInteger.ZERO);
+        return icxPayable.getOrDefault(_address, BigInteger.ZERO).add(releaseUnstakeRequests(_address, false));
     }
 
     @External(readonly = true)
@@ -274,11 +416,34 @@ public class StakingImpl implements Staking {
             } else {
                 unstake(_from, _value, null);
             }
+        } else if (method.equals("unstakeBatch")) {
+            unstakeBatch(_from, _value, json.get("requests").asArray());
         } else {
             Context.revert(TAG + ": Invalid Parameters.");
         }
     }
 
+    private void unstakeBatch(Address from, BigInteger value, JsonArray requests) {
+        Context.require(!requests.isEmpty(), TAG + ": No unstake requests provided.");
+        Context.require(requests.size() <= MAX_ITERATION_LOOP.intValue(),
+                TAG + ": At most " + MAX_ITERATION_LOOP + " unstake requests can be batched.");
+        List<Address> receivers = new ArrayList<>();
+        List<BigInteger> values = new ArrayList<>();
+        BigInteger totalValue = BigInteger.ZERO;
+        for (JsonValue request : requests) {
+            JsonObject unstakeRequest = request.asObject();
+            BigInteger requestValue = convertToNumber(unstakeRequest.get("amount"));
+            Context.require(requestValue != null && requestValue.signum() > 0,
+                    TAG + ": Unstake amount must be positive.");
+            receivers.add(Address.fromString(unstakeRequest.get("user").asString()));
+            values.add(requestValue);
+            totalValue = totalValue.add(requestValue);
+        }
+        Context.require(totalValue.equals(value), TAG + ": Unstake amounts do not add up to the sICX received.");
+
+        unstake(from, value, receivers, values);
+    }
+
     @SuppressWarnings("unchecked")
     private void checkForIscore() {
         Map<String, Object> iscoreDetails = (Map<String, Object>) Context.call(SYSTEM_SCORE_ADDRESS, "queryIScore",
@@ -295,7 +460,7 @@ public class StakingImpl implements Staking {
         if (_to == null) {
             _to = Context.getCaller();
         }
-        BigInteger payableIcx = claimableICX(_to);
+        BigInteger payableIcx = icxPayable.getOrDefault(_to, BigInteger.ZERO).add(releaseUnstakeRequests(_to, true));
         BigInteger icxToClaim = totalClaimableIcx();
         Context.require(payableIcx.compareTo(icxToClaim) <= 0,
                 TAG + ": No sufficient icx to claim. Requested: " + payableIcx + " Available: " + icxToClaim);
@@ -321,19 +486,49 @@ public class StakingImpl implements Staking {
                 BigInteger.ONE, Constant.TOP_PREP_COUNT);
         List<Map<String, Object>> prepDetails = (List<Map<String, Object>>) prepDict.get("preps");
         List<Address> topPreps = new ArrayList<>();
+        int currentCount = this.topPreps.size();
+        int slot = 0;
         for (Map<String, Object> preps : prepDetails) {
             Address prepAddress = (Address) preps.get("address");
             topPreps.add(prepAddress);
-            this.topPreps.add(prepAddress);
+
+            // Only slots whose prep changed are written
+            if (slot < currentCount) {
+                Address currentPrep = this.topPreps.get(slot);
+                if (currentPrep.equals(prepAddress)) {
+                    slot++;
+                    continue;
+                }
+                removeTopPrepIndex(currentPrep, slot);
+                this.topPreps.set(slot, prepAddress);
+            } else {
+                this.topPreps.add(prepAddress);
+            }
+            topPrepIndex.set(prepAddress, slot + 1);
+            slot++;
+        }
+
+        for (int i = currentCount - 1; i >= slot; i--) {
+            removeTopPrepIndex(this.topPreps.pop(), i);
         }
         return topPreps;
     }
 
+    private void removeTopPrepIndex(Address prep, int slot) {
+        // The prep may already have been indexed at its new slot during the same refresh
+        if (topPrepIndex.getOrDefault(prep, 0) == slot + 1) {
+            topPrepIndex.set(prep, null);
+        }
+    }
+
+    private boolean isTopPrep(Address prep) {
+        return topPrepIndex.getOrDefault(prep, 0) != 0;
+    }
+
     @External(readonly = true)
     public Map<String, BigInteger> getAddressDelegations(Address _address) {
         Map<String, BigInteger> delegationIcx = new HashMap<>();
-        Map<String, BigInteger> userDelegationInPercentage = this.userDelegationInPercentage.getOrDefault(_address,
-                DEFAULT_DELEGATION_LIST).toMap();
+        Map<String, BigInteger> userDelegationInPercentage = getUserDelegations(_address);
         BigInteger balance = (BigInteger) Context.call(sicxAddress.get(), "balanceOf", _address);
         BigInteger totalIcxHold = balance.multiply(getTodayRate()).divide(ONE_EXA);
 
@@ -386,12 +581,36 @@ public class StakingImpl implements Staking {
     private void stakeAndDelegateInNetwork(BigInteger stakeAmount, Map<String, BigInteger> prepDelegations) {
         List<Address> topPreps = updateTopPreps();
         DelegationListDBSdo prepDelegationsList = DelegationListDBSdo.fromMap(prepDelegations);
-        prepDelegationInIcx.set(prepDelegationsList);
+        prepDelegationShares.set(prepDelegationsList);
 
         Context.call(SYSTEM_SCORE_ADDRESS, "setStake", stakeAmount);
         updateDelegationInNetwork(prepDelegations, topPreps, stakeAmount);
     }
 
+    /**
+     * Stakes in the network but only resubmits the delegation once the ICX moved since the last submission reaches
+     * the delegation threshold, or when the top preps have been refreshed. Smaller changes are left for a later
+     * transaction or for submitDelegation. Only used for the drift of stakes and sICX transfers, a delegation chosen
+     * by a user is always submitted.
+     */
+    private void stakeAndDelegateInNetwork(BigInteger stakeAmount, Map<String, BigInteger> prepDelegations,
+                                           BigInteger delegationChange) {
+        BigInteger currentTerm = getBlockHeightWeek();
+        List<Address> topPreps = updateTopPreps();
+        DelegationListDBSdo prepDelegationsList = DelegationListDBSdo.fromMap(prepDelegations);
+        prepDelegationShares.set(prepDelegationsList);
+
+        Context.call(SYSTEM_SCORE_ADDRESS, "setStake", stakeAmount);
+
+        BigInteger pendingChange = getPendingDelegationChange().add(delegationChange);
+        boolean topPrepsUpdated = !currentTerm.equals(getBlockHeightWeek());
+        if (topPrepsUpdated || pendingChange.compareTo(getDelegationThreshold()) >= 0) {
+            updateDelegationInNetwork(prepDelegations, topPreps, stakeAmount);
+        } else {
+            pendingDelegationChange.set(pendingChange);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private List<Address> updateTopPreps() {
         Map<String, Object> termDetails = (Map<String, Object>) Context.call(SYSTEM_SCORE_ADDRESS, "getIISSInfo");
@@ -399,10 +618,6 @@ public class StakingImpl implements Staking {
         BigInteger destinationBlock = blockHeightWeek.getOrDefault(BigInteger.ZERO).add(BLOCKS_IN_A_WEEK);
         if (nextPrepTerm.compareTo(destinationBlock) > 0) {
             blockHeightWeek.set(nextPrepTerm);
-            int totalPreps = this.topPreps.size();
-            for (int i = 0; i < totalPreps; i++) {
-                this.topPreps.removeLast();
-            }
             return setTopPreps();
         } else {
             return getTopPreps();
@@ -414,26 +629,37 @@ public class StakingImpl implements Staking {
         stakingOn();
         Address to = Context.getCaller();
         performChecksForIscoreAndUnstakedBalance();
-        Map<String, BigInteger> previousDelegations = userDelegationInPercentage.getOrDefault(to,
-                DEFAULT_DELEGATION_LIST).toMap();
+        // sICX may not know about a custom delegation that is still in the legacy store
+        boolean legacyDelegation = userDelegations.get(to) == null && userDelegationInPercentage.get(to) != null;
+        Map<String, BigInteger> previousDelegations = getUserDelegations(to);
         Map<String, BigInteger> newDelegations = verifyUserDelegation(_user_delegations);
-        DelegationListDBSdo userDelegationList = DelegationListDBSdo.fromMap(newDelegations);
-        userDelegationInPercentage.set(to, userDelegationList);
+        setUserDelegations(to, newDelegations);
+        if (legacyDelegation || previousDelegations.isEmpty() != newDelegations.isEmpty()) {
+            Context.call(sicxAddress.get(), "setCustomDelegation", to, !newDelegations.isEmpty());
+        }
 
         BigInteger balance = (BigInteger) Context.call(sicxAddress.get(), "balanceOf", to);
         BigInteger icxHoldPreviously = balance.multiply(getTodayRate()).divide(ONE_EXA);
 
-        Map<String, BigInteger> prepDelegations = prepDelegationInIcx.getOrDefault(DEFAULT_DELEGATION_LIST).toMap();
+        Map<String, BigInteger> prepDelegations = getPrepDelegationShares();
 
         if (balance.compareTo(BigInteger.ZERO) > 0) {
-            prepDelegations = subtractUserDelegationFromPrepDelegation(prepDelegations, previousDelegations, icxHoldPreviously);
-            prepDelegations = addUserDelegationToPrepDelegation(prepDelegations, newDelegations, icxHoldPreviously);
+            BigInteger sharesHeld = icxToShares(icxHoldPreviously);
+            prepDelegations = subtractUserDelegationFromPrepDelegation(prepDelegations, previousDelegations, sharesHeld);
+            prepDelegations = addUserDelegationToPrepDelegation(prepDelegations, newDelegations, sharesHeld);
         }
         stakeAndDelegateInNetwork(totalStake.getOrDefault(BigInteger.ZERO), prepDelegations);
     }
 
     @SuppressWarnings("unchecked")
     private void performChecksForIscoreAndUnstakedBalance() {
+        // Rewards and matured unstakes only change between blocks, so the first staking transaction of a block
+        // reconciles them and the following ones reuse the stored rate and unstake state.
+        BigInteger blockHeight = BigInteger.valueOf(Context.getBlockHeight());
+        if (blockHeight.equals(lastReconciledBlock.get())) {
+            return;
+        }
+        lastReconciledBlock.set(blockHeight);
 
         // Calculate ICX available through unstaking
         Map<String, Object> stakeInNetwork = (Map<String, Object>) Context.call(SYSTEM_SCORE_ADDRESS, "getStake",
@@ -468,41 +694,28 @@ public class StakingImpl implements Staking {
                 BigInteger totalSupply = (BigInteger) Context.call(sicxAddress.get(), "totalSupply");
                 newRate = newTotalStake.multiply(ONE_EXA).divide(totalSupply);
             }
-            rate.set(newRate);
+            setRate(newRate);
             this.totalStake.set(newTotalStake);
 
-            Map<String, BigInteger> prepDelegations = prepDelegationInIcx.getOrDefault(DEFAULT_DELEGATION_LIST).toMap();
-            BigInteger totalIcxSpecification = BigInteger.ZERO;
-            for (Map.Entry<String, BigInteger> prepDelegation : prepDelegations.entrySet()) {
-                totalIcxSpecification = totalIcxSpecification.add(prepDelegation.getValue());
+            // Specified delegations grow with the total stake, which only moves the index they are held against
+            if (totalStake.signum() > 0) {
+                prepDelegationIndex.set(getPrepDelegationIndex().multiply(newTotalStake).divide(totalStake));
             }
-
-            BigInteger additionalRewardForSpecification =
-                    totalIcxSpecification.multiply(dailyReward).divide(totalStake);
-            Map<String, BigInteger> finalPrepDelegation = new HashMap<>();
-            for (Map.Entry<String, BigInteger> prepDelegation : prepDelegations.entrySet()) {
-                BigInteger currentAmount = prepDelegation.getValue();
-                BigInteger amountToAdd =
-                        currentAmount.multiply(additionalRewardForSpecification).divide(totalIcxSpecification);
-                finalPrepDelegation.put(prepDelegation.getKey(), currentAmount.add(amountToAdd));
-                additionalRewardForSpecification = additionalRewardForSpecification.subtract(amountToAdd);
-                totalIcxSpecification = totalIcxSpecification.subtract(currentAmount);
-            }
-            DelegationListDBSdo prepDelegationsList = DelegationListDBSdo.fromMap(finalPrepDelegation);
-            prepDelegationInIcx.set(prepDelegationsList);
+            pendingDelegationChange.set(getPendingDelegationChange().add(dailyReward));
         }
         checkForIscore();
         checkForUnstakedBalance(unstakedICX, totalUnstakeAmount);
     }
 
-    private void updateDelegationInNetwork(Map<String, BigInteger> prepDelegations, List<Address> topPreps,
+    private void updateDelegationInNetwork(Map<String, BigInteger> prepDelegationShares, List<Address> topPreps,
                                            BigInteger totalStake) {
 
+        Map<String, BigInteger> prepDelegations = sharesToIcx(prepDelegationShares);
         List<Map<String, Object>> networkDelegationList = new ArrayList<>();
         BigInteger icxPreferredToTopPreps = BigInteger.ZERO;
         for (Map.Entry<String, BigInteger> prepDelegation : prepDelegations.entrySet()) {
             Address prep = Address.fromString(prepDelegation.getKey());
-            if (topPreps.contains(prep)) {
+            if (isTopPrep(prep)) {
                 icxPreferredToTopPreps = icxPreferredToTopPreps.add(prepDelegation.getValue());
             }
         }
@@ -519,6 +732,8 @@ public class StakingImpl implements Staking {
             totalTopPreps = totalTopPreps.subtract(BigInteger.ONE);
         }
         Context.call(SYSTEM_SCORE_ADDRESS, "setDelegation", networkDelegationList);
+        pendingDelegationChange.set(BigInteger.ZERO);
+        lastDelegationBlock.set(BigInteger.valueOf(Context.getBlockHeight()));
     }
 
     @External
@@ -538,18 +753,18 @@ public class StakingImpl implements Staking {
         Context.call(sicxAddress.get(), "mintTo", _to, sicxToMint, _data);
         TokenTransfer(_to, sicxToMint, sicxToMint + " sICX minted to " + _to);
 
-        Map<String, BigInteger> userCurrentDelegation = userDelegationInPercentage.getOrDefault(_to,
-                DEFAULT_DELEGATION_LIST).toMap();
-        Map<String, BigInteger> prepDelegations = prepDelegationInIcx.getOrDefault(DEFAULT_DELEGATION_LIST).toMap();
+        Map<String, BigInteger> userCurrentDelegation = getUserDelegations(_to);
+        Map<String, BigInteger> prepDelegations = getPrepDelegationShares();
         Map<String, BigInteger> finalDelegation;
         if (!userCurrentDelegation.isEmpty()) {
-            finalDelegation = addUserDelegationToPrepDelegation(prepDelegations, userCurrentDelegation, addedIcx);
+            finalDelegation = addUserDelegationToPrepDelegation(prepDelegations, userCurrentDelegation,
+                    icxToShares(addedIcx));
         } else {
             finalDelegation = prepDelegations;
         }
         BigInteger newTotalStake = this.totalStake.getOrDefault(BigInteger.ZERO).add(addedIcx);
         this.totalStake.set(newTotalStake);
-        stakeAndDelegateInNetwork(newTotalStake, finalDelegation);
+        stakeAndDelegateInNetwork(newTotalStake, finalDelegation, addedIcx);
         return sicxToMint;
     }
 
@@ -560,31 +775,99 @@ public class StakingImpl implements Staking {
             Context.revert(TAG + ": Only sicx token contract can call this function.");
         }
 
-        Map<String, BigInteger> senderDelegationsInPercentage = userDelegationInPercentage.getOrDefault(_from,
-                DEFAULT_DELEGATION_LIST).toMap();
-        Map<String, BigInteger> receiverDelegationsInPercentage = userDelegationInPercentage.getOrDefault(_to,
-                DEFAULT_DELEGATION_LIST).toMap();
+        Map<String, BigInteger> senderDelegationsInPercentage = getUserDelegations(_from);
+        Map<String, BigInteger> receiverDelegationsInPercentage = getUserDelegations(_to);
         if (senderDelegationsInPercentage.isEmpty() && receiverDelegationsInPercentage.isEmpty()) {
             return;
         }
 
         BigInteger icxValue = _value.multiply(getTodayRate()).divide(ONE_EXA);
-        Map<String, BigInteger> prepDelegationInIcx =
-                this.prepDelegationInIcx.getOrDefault(DEFAULT_DELEGATION_LIST).toMap();
+        BigInteger sharesValue = icxToShares(icxValue);
+        Map<String, BigInteger> prepDelegationShares = getPrepDelegationShares();
 
         if (senderDelegationsInPercentage.isEmpty()) {
-            prepDelegationInIcx = addUserDelegationToPrepDelegation(prepDelegationInIcx,
-                    receiverDelegationsInPercentage, icxValue);
+            prepDelegationShares = addUserDelegationToPrepDelegation(prepDelegationShares,
+                    receiverDelegationsInPercentage, sharesValue);
         } else if (receiverDelegationsInPercentage.isEmpty()) {
-            prepDelegationInIcx = subtractUserDelegationFromPrepDelegation(prepDelegationInIcx,
-                    senderDelegationsInPercentage, icxValue);
+            prepDelegationShares = subtractUserDelegationFromPrepDelegation(prepDelegationShares,
+                    senderDelegationsInPercentage, sharesValue);
         } else {
-            prepDelegationInIcx = addUserDelegationToPrepDelegation(prepDelegationInIcx,
-                    receiverDelegationsInPercentage, icxValue);
-            prepDelegationInIcx = subtractUserDelegationFromPrepDelegation(prepDelegationInIcx,
-                    senderDelegationsInPercentage, icxValue);
+            prepDelegationShares = addUserDelegationToPrepDelegation(prepDelegationShares,
+                    receiverDelegationsInPercentage, sharesValue);
+            prepDelegationShares = subtractUserDelegationFromPrepDelegation(prepDelegationShares,
+                    senderDelegationsInPercentage, sharesValue);
         }
-        stakeAndDelegateInNetwork(totalStake.getOrDefault(BigInteger.ZERO), prepDelegationInIcx);
+        stakeAndDelegateInNetwork(totalStake.getOrDefault(BigInteger.ZERO), prepDelegationShares, icxValue);
+    }
+
+    @External
+    public void migrateUserDelegations(Address[] _users) {
+        onlyOwner();
+        for (Address user : _users) {
+            DelegationListDBSdo legacyDelegations = userDelegationInPercentage.get(user);
+            if (legacyDelegations != null && userDelegations.get(user) == null) {
+                setUserDelegations(user, legacyDelegations.toMap());
+                Context.call(sicxAddress.get(), "setCustomDelegation", user, true);
+            }
+        }
+    }
+
+    /**
+     * Lets sICX skip Staking for transfers between users without a custom delegation flag. Legacy entries that were
+     * missed by migrateUserDelegations keep being read, and can still be migrated afterwards to set their flag.
+     */
+    @External
+    public void completeUserDelegationsMigration() {
+        onlyOwner();
+        Context.require(!legacyDelegationsMigrated.getOrDefault(false), TAG + ": User delegations already migrated.");
+        legacyDelegationsMigrated.set(true);
+        // sICX only knows every custom delegation once all users have been migrated
+        Context.call(sicxAddress.get(), "setDelegationFlagsSynced", true);
+    }
+
+    private Map<String, BigInteger> getUserDelegations(Address user) {
+        byte[] encodedDelegations = userDelegations.get(user);
+        if (encodedDelegations != null) {
+            return prepRegistry.decode(encodedDelegations);
+        }
+
+        DelegationListDBSdo legacyDelegations = userDelegationInPercentage.get(user);
+        if (legacyDelegations != null) {
+            return legacyDelegations.toMap();
+        }
+
+        // Users on the default delegation have no entry
+        return Map.of();
+    }
+
+    private void setUserDelegations(Address user, Map<String, BigInteger> delegations) {
+        userDelegations.set(user, delegations.isEmpty() ? null : prepRegistry.encode(delegations));
+        userDelegationInPercentage.set(user, null);
+    }
+
+    private BigInteger getPrepDelegationIndex() {
+        return prepDelegationIndex.getOrDefault(ONE_EXA);
+    }
+
+    private Map<String, BigInteger> getPrepDelegationShares() {
+        return prepDelegationShares.getOrDefault(DEFAULT_DELEGATION_LIST).toMap();
+    }
+
+    private BigInteger icxToShares(BigInteger icxAmount) {
+        return icxAmount.multiply(ONE_EXA).divide(getPrepDelegationIndex());
+    }
+
+    private Map<String, BigInteger> sharesToIcx(Map<String, BigInteger> prepDelegationShares) {
+        BigInteger index = getPrepDelegationIndex();
+        if (index.equals(ONE_EXA)) {
+            return prepDelegationShares;
+        }
+
+        Map<String, BigInteger> prepDelegationInIcx = new HashMap<>();
+        for (Map.Entry<String, BigInteger> prepDelegation : prepDelegationShares.entrySet()) {
+            prepDelegationInIcx.put(prepDelegation.getKey(), prepDelegation.getValue().multiply(index).divide(ONE_EXA));
+        }
+        return prepDelegationInIcx;
     }
 
     private Map<String, BigInteger> addUserDelegationToPrepDelegation(Map<String, BigInteger> prepDelegation,
@@ -628,71 +911,107 @@ public class StakingImpl implements Staking {
     }
 
     private void checkForUnstakedBalance(BigInteger unstakedICX, BigInteger totalUnstakeAmount) {
-
-        if (unstakedICX.compareTo(BigInteger.ZERO) <= 0) {
-            return;
-        }
-
-        BigInteger icxToClaim = this.icxToClaim.getOrDefault(BigInteger.ZERO);
-
-        BigInteger currentId = unstakeRequestList.headId.getOrDefault(DEFAULT_NODE_ID);
-        if (currentId.equals(DEFAULT_NODE_ID)) {
+        BigInteger payout = unstakedICX.min(totalUnstakeAmount);
+        if (payout.compareTo(BigInteger.ZERO) <= 0) {
             return;
         }
 
-        NodeDB node;
-        UnstakeDetails unstakeData;
-        BigInteger payout;
-        int maxLoop = unstakeBatchLimit.getOrDefault(DEFAULT_UNSTAKE_BATCH_LIMIT).intValue();
-        for (int i = 0; i < maxLoop; i++) {
-
-            node = unstakeRequestList.getNode(currentId);
-            unstakeData = new UnstakeDetails(currentId, node.getValue(), node.getKey(), node.getBlockHeight(),
-                    node.getSenderAddress());
+        // Released ICX is handed to the queue in order; each receiver's share is resolved when claiming
+        unstakeReleasedTotal.set(unstakeReleasedTotal.getOrDefault(BigInteger.ZERO).add(payout));
+        this.totalUnstakeAmount.set(totalUnstakeAmount.subtract(payout));
+        icxToClaim.set(icxToClaim.getOrDefault(BigInteger.ZERO).add(payout));
+    }
 
-            BigInteger unstakeAmount = unstakeData.unstakeAmount;
-            if (unstakeAmount.compareTo(unstakedICX) <= 0) {
-                payout = unstakeAmount;
-                unstakeRequestList.remove(currentId);
-            } else {
-                payout = unstakedICX;
-                unstakeRequestList.updateNode(unstakeData.key, unstakeAmount.subtract(payout),
-                        unstakeData.unstakeBlockHeight, unstakeData.receiverAddress, currentId);
+    /**
+     * Walks the requests of a receiver from its cursor up to the first one that is not fully released. Requests are
+     * released in queue order, so the ones after it have nothing released yet and each request is only walked past
+     * once, whatever the number of requests the receiver has queued.
+     *
+     * @param settle whether to remove the fully released requests, move the cursor and record the payout
+     * @return ICX released to the receiver and not claimed yet
+     */
+    private BigInteger releaseUnstakeRequests(Address receiver, boolean settle) {
+        BigInteger releasedTotal = unstakeReleasedTotal.getOrDefault(BigInteger.ZERO);
+        ArrayDB<BigInteger> requests = userUnstakeRequests.at(receiver);
+        int requestsCount = requests.size();
+        int cursor = userUnstakeCursor.getOrDefault(receiver, 0);
+        BigInteger settled = userUnstakeSettled.getOrDefault(receiver, BigInteger.ZERO);
+        BigInteger released = settled;
+        while (cursor < requestsCount) {
+            BigInteger nodeId = requests.get(cursor);
+            NodeDB node = unstakeRequestList.getNode(nodeId);
+            BigInteger amount = node.getValue();
+            BigInteger nodeReleased = releasedAmount(node.getQueuePosition(), amount, releasedTotal);
+            if (!nodeReleased.equals(amount)) {
+                released = settled.add(nodeReleased);
+                break;
             }
-            totalUnstakeAmount = totalUnstakeAmount.subtract(payout);
-            unstakedICX = unstakedICX.subtract(payout);
-            icxToClaim = icxToClaim.add(payout);
-            icxPayable.set(unstakeData.receiverAddress, icxPayable.getOrDefault(unstakeData.receiverAddress,
-                    BigInteger.ZERO).add(payout));
-
-            currentId = unstakeRequestList.headId.getOrDefault(DEFAULT_NODE_ID);
 
-            if (currentId.equals(DEFAULT_NODE_ID)) {
-                break;
+            settled = settled.add(amount);
+            released = settled;
+            if (settle) {
+                unstakeRequestList.remove(nodeId);
             }
+            cursor++;
+        }
 
-            if (unstakedICX.compareTo(BigInteger.ZERO) <= 0) {
-                break;
+        BigInteger claimed = userUnstakeClaimed.getOrDefault(receiver, BigInteger.ZERO);
+        if (!settle) {
+            return released.subtract(claimed);
+        }
+
+        if (cursor == requestsCount) {
+            // Every request has been settled, so the index can start over
+            for (int i = 0; i < requestsCount; i++) {
+                requests.pop();
             }
+            cursor = 0;
         }
+        userUnstakeCursor.set(receiver, cursor);
+        userUnstakeSettled.set(receiver, settled);
+        userUnstakeClaimed.set(receiver, released);
+        return released.subtract(claimed);
+    }
 
-        this.totalUnstakeAmount.set(totalUnstakeAmount);
-        this.icxToClaim.set(icxToClaim);
+    private static BigInteger releasedAmount(BigInteger queuePosition, BigInteger amount, BigInteger releasedTotal) {
+        return releasedTotal.subtract(queuePosition).max(BigInteger.ZERO).min(amount);
     }
 
-    @SuppressWarnings("unchecked")
     private void unstake(Address to, BigInteger value, Address senderAddress) {
+        Address addressToSend = senderAddress != null ? senderAddress : to;
+        unstake(to, value, List.of(addressToSend), List.of(value));
+    }
+
+    /**
+     * Unstakes sICX received from one sender on behalf of several receivers, with a single delegation update and
+     * stake change in the network. The sICX is converted to ICX once and split in proportion to the requested values,
+     * the last receiver taking the rounding remainder, so a batch unstakes exactly as much as a single request would.
+     * Requests whose share rounds down to nothing are rejected rather than queued.
+     */
+    @SuppressWarnings("unchecked")
+    private void unstake(Address to, BigInteger value, List<Address> receivers, List<BigInteger> values) {
         Context.call(sicxAddress.get(), "burn", value);
-        BigInteger amountToUnstake = (value.multiply(getTodayRate())).divide(ONE_EXA);
+        BigInteger amountToUnstake = value.multiply(getTodayRate()).divide(ONE_EXA);
+        int requestsCount = receivers.size();
+        BigInteger[] amountsToUnstake = new BigInteger[requestsCount];
+        BigInteger amountLeft = amountToUnstake;
+        for (int i = 0; i < requestsCount - 1; i++) {
+            amountsToUnstake[i] = values.get(i).multiply(amountToUnstake).divide(value);
+            amountLeft = amountLeft.subtract(amountsToUnstake[i]);
+        }
+        amountsToUnstake[requestsCount - 1] = amountLeft;
+        for (int i = 0; i < requestsCount; i++) {
+            Context.require(amountsToUnstake[i].signum() > 0,
+                    TAG + ": Unstake request for " + receivers.get(i) + " is worth no ICX.");
+        }
         totalUnstakeAmount.set(totalUnstakeAmount.getOrDefault(BigInteger.ZERO).add(amountToUnstake));
 
-        Map<String, BigInteger> userDelegationPercentage = userDelegationInPercentage.getOrDefault(to,
-                DEFAULT_DELEGATION_LIST).toMap();
-        Map<String, BigInteger> prepDelegations = prepDelegationInIcx.getOrDefault(DEFAULT_DELEGATION_LIST).toMap();
+        Map<String, BigInteger> userDelegationPercentage = getUserDelegations(to);
+        Map<String, BigInteger> prepDelegations = getPrepDelegationShares();
         Map<String, BigInteger> finalDelegation;
         if (!userDelegationPercentage.isEmpty()) {
             finalDelegation = subtractUserDelegationFromPrepDelegation(prepDelegations, userDelegationPercentage,
-                    amountToUnstake);
+                    icxToShares(amountToUnstake));
         } else {
             finalDelegation = prepDelegations;
         }
@@ -703,46 +1022,104 @@ public class StakingImpl implements Staking {
         List<Address> topPreps = updateTopPreps();
         totalStake.set(newTotalStake);
         DelegationListDBSdo prepDelegationsList = DelegationListDBSdo.fromMap(finalDelegation);
-        prepDelegationInIcx.set(prepDelegationsList);
+        prepDelegationShares.set(prepDelegationsList);
 
         // First set the decreased delegation and stake
         updateDelegationInNetwork(finalDelegation, topPreps, newTotalStake);
         Context.call(SYSTEM_SCORE_ADDRESS, "setStake", newTotalStake);
 
         // Add unstake details to unstake request list
-        Address addressToSend = senderAddress != null ? senderAddress : to;
         Map<String, BigInteger> estimatedUnlockPeriod = (Map<String, BigInteger>) Context.call(SYSTEM_SCORE_ADDRESS,
                 "estimateUnstakeLockPeriod");
         BigInteger unlockPeriod = estimatedUnlockPeriod.get("unstakeLockPeriod");
         long currentBlockHeight = Context.getBlockHeight();
         BigInteger unstakeHeight = BigInteger.valueOf(currentBlockHeight).add(unlockPeriod);
-        unstakeRequestList.append(to, amountToUnstake, unstakeHeight, addressToSend,
-                unstakeRequestList.tailId.getOrDefault(BigInteger.ZERO).add(BigInteger.ONE));
-        UnstakeRequest(addressToSend, amountToUnstake);
+        // While the queue is being migrated, new requests are only appended to the list and are given their queue
+        // positions by migrateUnstakeQueue once it reaches them, so that positions keep following the queue order.
+        boolean queueMigrated = getUnstakeMigrationCursor().equals(DEFAULT_NODE_ID);
+        BigInteger nodeId = unstakeRequestList.tailId.getOrDefault(BigInteger.ZERO);
+        BigInteger queuedTotal = unstakeQueuedTotal.getOrDefault(BigInteger.ZERO);
+        for (int i = 0; i < requestsCount; i++) {
+            Address addressToSend = receivers.get(i);
+            nodeId = nodeId.add(BigInteger.ONE);
+            unstakeRequestList.append(to, amountsToUnstake[i], unstakeHeight, addressToSend, nodeId);
+            if (queueMigrated) {
+                unstakeRequestList.getNode(nodeId).setQueuePosition(queuedTotal);
+                queuedTotal = queuedTotal.add(amountsToUnstake[i]);
+                userUnstakeRequests.at(addressToSend).add(nodeId);
+            }
+            UnstakeRequest(addressToSend, amountsToUnstake[i]);
+        }
+        if (queueMigrated) {
+            unstakeQueuedTotal.set(queuedTotal);
+        }
     }
 
 
     @External(readonly = true)
     public List<List<Object>> getUnstakeInfo() {
         List<List<Object>> unstakeResponse = new ArrayList<>();
+        BigInteger releasedTotal = unstakeReleasedTotal.getOrDefault(BigInteger.ZERO);
         List<UnstakeDetails> unstakeDetails = unstakeRequestList.iterate();
         for (UnstakeDetails unstakeDetail : unstakeDetails) {
-            unstakeResponse.add(List.of(unstakeDetail.nodeId, unstakeDetail.unstakeAmount, unstakeDetail.key,
-                    unstakeDetail.unstakeBlockHeight, unstakeDetail.receiverAddress));
+            BigInteger pendingAmount = pendingAmount(unstakeDetail, releasedTotal);
+            if (pendingAmount.signum() > 0) {
+                unstakeResponse.add(List.of(unstakeDetail.nodeId, pendingAmount, unstakeDetail.key,
+                        unstakeDetail.unstakeBlockHeight, unstakeDetail.receiverAddress));
+            }
         }
         return unstakeResponse;
     }
 
+    @External(readonly = true)
+    public Map<String, Object> getUnstakeInfoPage(BigInteger _cursor, int _limit) {
+        Context.require(_limit > 0 && _limit <= MAX_ITERATION_LOOP.intValue(),
+                TAG + ": Limit must be between 1 and " + MAX_ITERATION_LOOP + ".");
+        BigInteger cursor = _cursor;
+        if (!cursor.equals(DEFAULT_NODE_ID) && !unstakeRequestList.createNodeInstance(cursor).exists()) {
+            // The request was claimed after being fully released, and the ones queued before it were released too
+            cursor = DEFAULT_NODE_ID;
+        }
+        BigInteger releasedTotal = unstakeReleasedTotal.getOrDefault(BigInteger.ZERO);
+        List<UnstakeDetails> unstakeDetails = unstakeRequestList.iterate(cursor, _limit);
+        List<List<Object>> unstakeResponse = new ArrayList<>();
+        for (UnstakeDetails unstakeDetail : unstakeDetails) {
+            BigInteger pendingAmount = pendingAmount(unstakeDetail, releasedTotal);
+            if (pendingAmount.signum() > 0) {
+                unstakeResponse.add(List.of(unstakeDetail.nodeId, pendingAmount, unstakeDetail.key,
+                        unstakeDetail.unstakeBlockHeight, unstakeDetail.receiverAddress));
+            }
+        }
+
+        BigInteger nextCursor = BigInteger.ZERO;
+        if (!unstakeDetails.isEmpty()) {
+            nextCursor = unstakeRequestList.nextId(unstakeDetails.get(unstakeDetails.size() - 1).nodeId);
+        }
+        return Map.of("unstakes", unstakeResponse, "next", nextCursor);
+    }
+
     @External(readonly = true)
     public List<Map<String, Object>> getUserUnstakeInfo(Address _address) {
-        List<UnstakeDetails> linkedListIter = unstakeRequestList.iterate();
+        BigInteger releasedTotal = unstakeReleasedTotal.getOrDefault(BigInteger.ZERO);
+        ArrayDB<BigInteger> requests = userUnstakeRequests.at(_address);
+        int requestsCount = requests.size();
+
         List<Map<String, Object>> response = new ArrayList<>();
-        for (UnstakeDetails unstakeData : linkedListIter) {
-            if (unstakeData.receiverAddress.equals(_address)) {
-                response.add(Map.of("amount", unstakeData.unstakeAmount, "from", unstakeData.key, "blockHeight",
-                        unstakeData.unstakeBlockHeight, "sender", unstakeData.receiverAddress));
+        for (int i = userUnstakeCursor.getOrDefault(_address, 0); i < requestsCount; i++) {
+            NodeDB node = unstakeRequestList.getNode(requests.get(i));
+            BigInteger amount = node.getValue();
+            BigInteger pendingAmount = amount.subtract(releasedAmount(node.getQueuePosition(), amount,
+                    releasedTotal));
+            if (pendingAmount.signum() > 0) {
+                response.add(Map.of("amount", pendingAmount, "from", node.getKey(), "blockHeight",
+                        node.getBlockHeight(), "sender", node.getSenderAddress()));
             }
         }
         return response;
     }
+
+    private static BigInteger pendingAmount(UnstakeDetails unstakeDetail, BigInteger releasedTotal) {
+        return unstakeDetail.unstakeAmount.subtract(releasedAmount(unstakeDetail.queuePosition,
+                unstakeDetail.unstakeAmount, releasedTotal));
+    }
 }
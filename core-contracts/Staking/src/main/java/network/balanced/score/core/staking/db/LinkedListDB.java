@@ -196,7 +196,7 @@ public class LinkedListDB {
 
         NodeDB node = getNode(currentId);
         unstakeDetail.add(new UnstakeDetails(currentId, node.getValue(), node.getKey(), node.getBlockHeight(),
-                node.getSenderAddress()));
+                node.getSenderAddress(), node.getQueuePosition()));
 
         BigInteger tailId = this.tailId.getOrDefault(DEFAULT_NODE_ID);
 
@@ -204,11 +204,38 @@ public class LinkedListDB {
             currentId = node.getNext();
             node = getNode(currentId);
             unstakeDetail.add(new UnstakeDetails(currentId, node.getValue(), node.getKey(), node.getBlockHeight(),
-                    node.getSenderAddress()));
+                    node.getSenderAddress(), node.getQueuePosition()));
         }
         return unstakeDetail;
     }
 
+    public List<UnstakeDetails> iterate(BigInteger startId, int limit) {
+        List<UnstakeDetails> unstakeDetail = new ArrayList<>();
+        BigInteger currentId = startId.equals(DEFAULT_NODE_ID) ? headId.getOrDefault(DEFAULT_NODE_ID) : startId;
+        if (currentId.equals(DEFAULT_NODE_ID)) {
+            return unstakeDetail;
+        }
+
+        BigInteger tailId = this.tailId.getOrDefault(DEFAULT_NODE_ID);
+        for (int i = 0; i < limit; i++) {
+            NodeDB node = getNode(currentId);
+            unstakeDetail.add(new UnstakeDetails(currentId, node.getValue(), node.getKey(), node.getBlockHeight(),
+                    node.getSenderAddress(), node.getQueuePosition()));
+            if (currentId.equals(tailId)) {
+                break;
+            }
+            currentId = node.getNext();
+        }
+        return unstakeDetail;
+    }
+
+    public BigInteger nextId(BigInteger nodeId) {
+        if (nodeId.equals(tailId.getOrDefault(DEFAULT_NODE_ID))) {
+            return DEFAULT_NODE_ID;
+        }
+        return getNode(nodeId).getNext();
+    }
+
     private void LinkedNodeAlreadyExists(String name, BigInteger nodeId) {
         Context.revert("Linked List " + name + "already exists of nodeId." + nodeId.toString());
     }
@@ -34,6 +34,7 @@ public class NodeDB {
     private final VarDB<Address> senderAddress;
     private final VarDB<BigInteger> next;
     private final VarDB<BigInteger> prev;
+    private final VarDB<BigInteger> queuePosition;
 
     public NodeDB(String key) {
         String name = key + NAME;
@@ -43,6 +44,7 @@ public class NodeDB {
         this.senderAddress = Context.newVarDB(name + "_address", Address.class);
         this.next = Context.newVarDB(name + "_next", BigInteger.class);
         this.prev = Context.newVarDB(name + "_prev", BigInteger.class);
+        this.queuePosition = Context.newVarDB(name + "_queue_position", BigInteger.class);
     }
 
     public void delete() {
@@ -52,6 +54,7 @@ public class NodeDB {
         senderAddress.set(null);
         prev.set(null);
         next.set(null);
+        queuePosition.set(null);
     }
 
     public boolean exists() {
@@ -97,4 +100,12 @@ public class NodeDB {
         prev.set(prev_id);
     }
 
+    public BigInteger getQueuePosition() {
+        return queuePosition.getOrDefault(BigInteger.ZERO);
+    }
+
+    public void setQueuePosition(BigInteger position) {
+        queuePosition.set(position);
+    }
+
 }
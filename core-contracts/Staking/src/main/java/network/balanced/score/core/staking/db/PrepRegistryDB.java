@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.staking.db;
+
+import score.Address;
+import score.ArrayDB;
+import score.Context;
+import score.DictDB;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * Registry of every prep a user has delegated to, used to store user delegations compactly. Each delegation is
+ * encoded as the 4 byte index of the prep in the registry followed by the percentage as a 9 byte unsigned integer.
+ */
+public class PrepRegistryDB {
+    private static final String NAME = "_PREP_REGISTRY";
+    private static final int INDEX_SIZE = 4;
+    private static final int PERCENTAGE_SIZE = 9;
+    private static final int ENTRY_SIZE = INDEX_SIZE + PERCENTAGE_SIZE;
+
+    private final ArrayDB<Address> preps;
+    // Position of each prep in preps, offset by one so that zero means not registered.
+    private final DictDB<Address, Integer> prepIndex;
+
+    public PrepRegistryDB(String key) {
+        String name = key + NAME;
+        this.preps = Context.newArrayDB(name + "_preps", Address.class);
+        this.prepIndex = Context.newDictDB(name + "_index", Integer.class);
+    }
+
+    public int register(Address prep) {
+        int index = prepIndex.getOrDefault(prep, 0);
+        if (index != 0) {
+            return index - 1;
+        }
+
+        preps.add(prep);
+        index = preps.size();
+        prepIndex.set(prep, index);
+        return index - 1;
+    }
+
+    public byte[] encode(Map<String, BigInteger> delegations) {
+        byte[] encoded = new byte[delegations.size() * ENTRY_SIZE];
+        int offset = 0;
+        for (Map.Entry<String, BigInteger> delegation : delegations.entrySet()) {
+            int index = register(Address.fromString(delegation.getKey()));
+            for (int i = INDEX_SIZE - 1; i >= 0; i--) {
+                encoded[offset + i] = (byte) index;
+                index >>>= 8;
+            }
+
+            byte[] percentage = delegation.getValue().toByteArray();
+            int length = Math.min(percentage.length, PERCENTAGE_SIZE);
+            System.arraycopy(percentage, percentage.length - length, encoded, offset + ENTRY_SIZE - length, length);
+            offset += ENTRY_SIZE;
+        }
+        return encoded;
+    }
+
+    public Map<String, BigInteger> decode(byte[] encoded) {
+        Map<String, BigInteger> delegations = new HashMap<>();
+        for (int offset = 0; offset < encoded.length; offset += ENTRY_SIZE) {
+            int index = 0;
+            for (int i = 0; i < INDEX_SIZE; i++) {
+                index = (index << 8) | (encoded[offset + i] & 0xff);
+            }
+
+            byte[] percentage = new byte[PERCENTAGE_SIZE];
+            System.arraycopy(encoded, offset + INDEX_SIZE, percentage, 0, PERCENTAGE_SIZE);
+            delegations.put(preps.get(index).toString(), new BigInteger(1, percentage));
+        }
+        return delegations;
+    }
+}
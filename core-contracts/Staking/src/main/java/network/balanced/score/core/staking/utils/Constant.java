@@ -30,6 +30,8 @@ public class Constant {
     public static final BigInteger HUNDRED_PERCENTAGE = HUNDRED.multiply(ONE_EXA);
     public static final BigInteger TOP_PREP_COUNT = HUNDRED;
     public static final BigInteger DEFAULT_UNSTAKE_BATCH_LIMIT = BigInteger.valueOf(200L);
+    // ICX of stake changes left out of the network delegation until it is resubmitted, zero submits on every change
+    public static final BigInteger DEFAULT_DELEGATION_THRESHOLD = BigInteger.valueOf(1000L).multiply(ONE_EXA);
     public static final BigInteger MAX_ITERATION_LOOP = HUNDRED;
     public static final BigInteger DEFAULT_DECIMAL_VALUE = BigInteger.valueOf(18L);
     public static final BigInteger MINIMUM_DELEGATION_PERCENTAGE = pow10(15);
@@ -37,6 +39,8 @@ public class Constant {
 
     public static final String SICX_SUPPLY = "sICX_supply";
     public static final String RATE = "_rate";
+    public static final String RATE_CHECKPOINT_BLOCKS = "rate_checkpoint_blocks";
+    public static final String RATE_CHECKPOINTS = "rate_checkpoints";
     public static final String SICX_ADDRESS = "sICX_address";
     public static final String BLOCK_HEIGHT_WEEK = "_block_height_week";
     public static final String BLOCK_HEIGHT_DAY = "_block_height_day";
@@ -46,6 +50,7 @@ public class Constant {
     public static final String DISTRIBUTING = "_distributing";
     public static final String LINKED_LIST_VAR = "_linked_list_var";
     public static final String TOP_PREPS = "_top_preps";
+    public static final String TOP_PREP_INDEX = "top_prep_index";
     public static final String PREP_LIST = "_prep_list";
     public static final String ADDRESS_DELEGATIONS = "_address_delegations";
     public static final String PREP_DELEGATIONS = "_prep_delegations";
@@ -57,6 +62,21 @@ public class Constant {
     public static final String UNSTAKE_DICT = "unstake_dict";
     public static final String USER_DELEGATION_PERCENTAGE = "user_delegation_percentage";
     public static final String PREP_DELEGATION_ICX = "prep_delegation_icx";
+    public static final String PREP_DELEGATION_INDEX = "prep_delegation_index";
+    public static final String LAST_RECONCILED_BLOCK = "last_reconciled_block";
+    public static final String DELEGATION_THRESHOLD = "delegation_threshold";
+    public static final String PENDING_DELEGATION_CHANGE = "pending_delegation_change";
+    public static final String LAST_DELEGATION_BLOCK = "last_delegation_block";
+    public static final String UNSTAKE_QUEUED_TOTAL = "unstake_queued_total";
+    public static final String UNSTAKE_RELEASED_TOTAL = "unstake_released_total";
+    public static final String USER_UNSTAKE_REQUESTS = "user_unstake_requests";
+    public static final String USER_UNSTAKE_CURSOR = "user_unstake_cursor";
+    public static final String USER_UNSTAKE_SETTLED = "user_unstake_settled";
+    public static final String USER_UNSTAKE_CLAIMED = "user_unstake_claimed";
+    public static final String UNSTAKE_MIGRATION_CURSOR = "unstake_migration_cursor";
+    public static final String USER_DELEGATIONS = "user_delegations";
+    public static final String PREP_REGISTRY = "prep_registry";
+    public static final String LEGACY_DELEGATIONS_MIGRATED = "legacy_delegations_migrated";
 
     public static DelegationListDBSdo DEFAULT_DELEGATION_LIST = getDelegationList();
 
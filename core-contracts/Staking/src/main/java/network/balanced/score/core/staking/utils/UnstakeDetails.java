@@ -26,13 +26,15 @@ public class UnstakeDetails {
     public Address key;
     public BigInteger unstakeBlockHeight;
     public Address receiverAddress;
+    public BigInteger queuePosition;
 
     public UnstakeDetails(BigInteger nodeId, BigInteger unstakeAmount, Address key, BigInteger unstakeBlockHeight,
-                          Address receiverAddress) {
+                          Address receiverAddress, BigInteger queuePosition) {
         this.nodeId = nodeId;
         this.unstakeAmount = unstakeAmount;
         this.key = key;
         this.unstakeBlockHeight = unstakeBlockHeight;
         this.receiverAddress = receiverAddress;
+        this.queuePosition = queuePosition;
     }
 }
@@ -20,6 +20,7 @@ import com.iconloop.score.test.Account;
 import com.iconloop.score.test.Score;
 import com.iconloop.score.test.ServiceManager;
 import com.iconloop.score.test.TestBase;
+import network.balanced.score.core.staking.db.DelegationListDBSdo;
 import network.balanced.score.lib.structs.PrepDelegations;
 import org.json.JSONObject;
 import org.junit.jupiter.api.AfterEach;
@@ -30,6 +31,7 @@ import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import score.Address;
 import score.Context;
+import score.DictDB;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
@@ -124,6 +126,9 @@ class StakingTest extends TestBase {
         contextMock.when(() -> Context.call(eq(sicx.getAddress()), eq("mintTo"), any(Address.class),
                 any(BigInteger.class), any(byte[].class))).thenReturn(null);
         contextMock.when(() -> Context.call(eq(sicx.getAddress()), eq("burn"), any(BigInteger.class))).thenReturn(null);
+        contextMock.when(() -> Context.call(eq(sicx.getAddress()), eq("setCustomDelegation"), any(Address.class),
+                anyBoolean())).thenReturn(null);
+        contextMock.when(() -> Context.call(sicx.getAddress(), "setDelegationFlagsSynced", true)).thenReturn(null);
 
         sicxBalance = BigInteger.ZERO;
         contextMock.when(sicxBalanceOf).thenReturn(sicxBalance);
@@ -141,6 +146,18 @@ class StakingTest extends TestBase {
         prepsResponse.put("preps", prepsList);
     }
 
+    void setLegacyDelegation(Address user, Map<String, BigInteger> delegations) {
+        // Legacy entries can only be written from within a Staking transaction
+        contextMock.when(sicxBalanceOf).thenAnswer(invocation -> {
+            DictDB<Address, DelegationListDBSdo> legacyDelegations = Context.newDictDB(USER_DELEGATION_PERCENTAGE,
+                    DelegationListDBSdo.class);
+            legacyDelegations.set(user, DelegationListDBSdo.fromMap(delegations));
+            return sicxBalance;
+        });
+        staking.invoke(alice, "delegate", (Object) new PrepDelegations[]{});
+        contextMock.when(sicxBalanceOf).thenReturn(sicxBalance);
+    }
+
     JSONObject getUnstakeJsonData() {
         JSONObject unstakeData = new JSONObject();
         unstakeData.put("method", "unstake");
@@ -196,6 +213,32 @@ class StakingTest extends TestBase {
         assertEquals(extraICXBalance, staking.call("getLifetimeReward"));
     }
 
+    @Test
+    void getRateAt() {
+        BigInteger deployedBlock = BigInteger.valueOf(sm.getBlock().getHeight());
+        assertEquals(ICX, staking.call("getRateAt", deployedBlock));
+
+        String expectedErrorMessage = "No rate recorded at or before block 0.";
+        Executable beforeDeployment = () -> staking.call("getRateAt", BigInteger.ZERO);
+        expectErrorMessage(beforeDeployment, expectedErrorMessage);
+
+        BigInteger extraICXBalance = BigInteger.valueOf(397L);
+        BigInteger stakeAmount = BigInteger.valueOf(199L);
+        contextMock.when(() -> Context.getBalance(staking.getAddress())).thenReturn(extraICXBalance.add(stakeAmount));
+        sicxTotalSupply = BigInteger.valueOf(719L);
+        contextMock.when(getSicxTotalSupply).thenReturn(sicxTotalSupply);
+        doReturn(sicxTotalSupply).when(stakingSpy).getTotalStake();
+
+        sm.call(owner, stakeAmount, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        BigInteger rewardBlock = BigInteger.valueOf(sm.getBlock().getHeight());
+        BigInteger newRate = sicxTotalSupply.add(extraICXBalance).multiply(ICX).divide(sicxTotalSupply);
+
+        assertEquals(ICX, staking.call("getRateAt", rewardBlock.subtract(BigInteger.ONE)));
+        assertEquals(newRate, staking.call("getRateAt", rewardBlock));
+        assertEquals(newRate, staking.call("getRateAt", rewardBlock.add(BigInteger.TEN)));
+    }
+
     @Test
     void toggleStakingOn() {
         assertEquals(true, staking.call("getStakingOn"));
@@ -369,6 +412,44 @@ class StakingTest extends TestBase {
         assertArrayEquals(newTopPreps.toArray(), ((List<Address>) staking.call("getTopPreps")).toArray());
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void refreshTopPrepsInPlace() {
+        List<Address> topPreps = (List<Address>) staking.call("getTopPreps");
+        Address droppedPrep = topPreps.get(0);
+
+        PrepDelegations delegation = new PrepDelegations();
+        delegation._address = droppedPrep;
+        delegation._votes_in_per = HUNDRED_PERCENTAGE;
+        sm.call(owner, BigInteger.TEN, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        contextMock.when(sicxBalanceOf).thenReturn(BigInteger.TEN);
+        staking.invoke(owner, "delegate", (Object) new PrepDelegations[]{delegation});
+
+        // The first prep leaves the top preps, every other prep moves up one slot and a new prep joins
+        List<Map<String, Object>> newPrepsList = new ArrayList<>();
+        List<Address> newTopPreps = new ArrayList<>();
+        for (int i = 1; i < topPreps.size(); i++) {
+            newPrepsList.add(Map.of("address", topPreps.get(i)));
+            newTopPreps.add(topPreps.get(i));
+        }
+        Address newPrep = sm.createAccount().getAddress();
+        newPrepsList.add(Map.of("address", newPrep));
+        newTopPreps.add(newPrep);
+        contextMock.when(getPreps).thenReturn(Map.of("preps", newPrepsList));
+
+        nextPrepTerm = BigInteger.valueOf(1000).add(BigInteger.valueOf(7 * 43200L)).add(BigInteger.TEN);
+        iissInfo.put("nextPRepTerm", nextPrepTerm);
+        contextMock.when(getIISSInfo).thenReturn(iissInfo);
+        sm.call(alice, BigInteger.TEN, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+
+        assertArrayEquals(newTopPreps.toArray(), ((List<Address>) staking.call("getTopPreps")).toArray());
+        List<Address> prepList = (List<Address>) staking.call("getPrepList");
+        assertEquals(newTopPreps.size() + 1, prepList.size());
+        assertEquals(droppedPrep, prepList.get(newTopPreps.size()));
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     void getPrepDelegations() {
@@ -493,6 +574,46 @@ class StakingTest extends TestBase {
         assertEquals(defaultDelegationList, staking.call("getAddressDelegations", alice.getAddress()));
     }
 
+    @Test
+    void migrateUserDelegations() {
+        Account newPrep = sm.createAccount();
+        PrepDelegations delegation = new PrepDelegations();
+        delegation._address = newPrep.getAddress();
+        delegation._votes_in_per = HUNDRED_PERCENTAGE;
+        staking.invoke(owner, "delegate", (Object) new PrepDelegations[]{delegation});
+
+        staking.invoke(owner, "migrateUserDelegations", (Object) new Address[]{owner.getAddress(),
+                alice.getAddress()});
+        staking.invoke(owner, "completeUserDelegationsMigration");
+        contextMock.verify(() -> Context.call(sicx.getAddress(), "setCustomDelegation", owner.getAddress(), true));
+        contextMock.verify(() -> Context.call(sicx.getAddress(), "setDelegationFlagsSynced", true));
+        assertEquals(Map.of(newPrep.getAddress().toString(), HUNDRED_PERCENTAGE),
+                staking.call("getActualUserDelegationPercentage", owner.getAddress()));
+        assertEquals(Map.of(), staking.call("getActualUserDelegationPercentage", alice.getAddress()));
+
+        Executable completeTwice = () -> staking.invoke(owner, "completeUserDelegationsMigration");
+        expectErrorMessage(completeTwice, TAG + ": User delegations already migrated.");
+    }
+
+    @Test
+    void delegateFromLegacyDelegation() {
+        Account legacyPrep = sm.createAccount();
+        Account newPrep = sm.createAccount();
+        setLegacyDelegation(owner.getAddress(), Map.of(legacyPrep.getAddress().toString(), HUNDRED_PERCENTAGE));
+        assertEquals(Map.of(legacyPrep.getAddress().toString(), HUNDRED_PERCENTAGE),
+                staking.call("getActualUserDelegationPercentage", owner.getAddress()));
+
+        PrepDelegations delegation = new PrepDelegations();
+        delegation._address = newPrep.getAddress();
+        delegation._votes_in_per = HUNDRED_PERCENTAGE;
+        staking.invoke(owner, "delegate", (Object) new PrepDelegations[]{delegation});
+
+        contextMock.verify(() -> Context.call(sicx.getAddress(), "setCustomDelegation", owner.getAddress(), true));
+        staking.invoke(owner, "migrateUserDelegations", (Object) new Address[]{owner.getAddress()});
+        assertEquals(Map.of(newPrep.getAddress().toString(), HUNDRED_PERCENTAGE),
+                staking.call("getActualUserDelegationPercentage", owner.getAddress()));
+    }
+
     @Test
     void checkForIscore() {
 
@@ -513,25 +634,131 @@ class StakingTest extends TestBase {
         contextMock.verify(claimIScore, times(1));
     }
 
+    @Test
+    void prepDelegationsCompoundWithRewards() {
+        Account newPrep = sm.createAccount();
+        PrepDelegations delegation = new PrepDelegations();
+        delegation._address = newPrep.getAddress();
+        delegation._votes_in_per = HUNDRED_PERCENTAGE;
+        staking.invoke(owner, "delegate", (Object) new PrepDelegations[]{delegation});
+
+        BigInteger stakeAmount = BigInteger.valueOf(100L);
+        sm.call(owner, stakeAmount, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        assertEquals(Map.of(newPrep.getAddress().toString(), stakeAmount), staking.call("getActualPrepDelegations"));
+
+        // I-Score rewards raise the specified delegation in proportion to the total stake
+        BigInteger reward = BigInteger.valueOf(50L);
+        contextMock.when(() -> Context.getBalance(staking.getAddress())).thenReturn(reward);
+        contextMock.when(getSicxTotalSupply).thenReturn(stakeAmount);
+        staking.invoke(alice, "delegate", (Object) new PrepDelegations[]{});
+
+        assertEquals(stakeAmount.add(reward), staking.call("getTotalStake"));
+        assertEquals(Map.of(newPrep.getAddress().toString(), stakeAmount.add(reward)),
+                staking.call("getActualPrepDelegations"));
+    }
+
+    @Test
+    void reconcileOncePerBlock() {
+        Account newPrep = sm.createAccount();
+        PrepDelegations delegation = new PrepDelegations();
+        delegation._address = newPrep.getAddress();
+        delegation._votes_in_per = HUNDRED_PERCENTAGE;
+
+        iScore.put("estimatedICX", BigInteger.TEN);
+        contextMock.when(queryIscore).thenReturn(iScore);
+        contextMock.when(Context::getBlockHeight).thenReturn(sm.getBlock().getHeight() + 1);
+        staking.invoke(owner, "delegate", (Object) new PrepDelegations[]{delegation});
+        staking.invoke(alice, "delegate", (Object) new PrepDelegations[]{delegation});
+        contextMock.verify(getStake, times(1));
+        contextMock.verify(claimIScore, times(1));
+
+        contextMock.when(Context::getBlockHeight).thenReturn(sm.getBlock().getHeight() + 2);
+        staking.invoke(owner, "delegate", (Object) new PrepDelegations[]{delegation});
+        contextMock.verify(getStake, times(2));
+        contextMock.verify(claimIScore, times(2));
+    }
+
+    @Test
+    void delegationThreshold() {
+        Verification setDelegation = () -> Context.call(eq(SYSTEM_SCORE_ADDRESS), eq("setDelegation"),
+                any(List.class));
+        assertEquals(DEFAULT_DELEGATION_THRESHOLD, staking.call("getDelegationThreshold"));
+        BigInteger threshold = BigInteger.valueOf(500L);
+        staking.invoke(owner, "setDelegationThreshold", threshold);
+        assertEquals(threshold, staking.call("getDelegationThreshold"));
+
+        // Changes below the threshold only stake in the network
+        BigInteger stakeAmount = BigInteger.valueOf(199L);
+        sm.call(owner, stakeAmount, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        sm.call(alice, stakeAmount, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        contextMock.verify(setDelegation, times(0));
+        assertEquals(stakeAmount.multiply(BigInteger.TWO), staking.call("getPendingDelegationChange"));
+
+        // Reaching the threshold submits the delegation
+        sm.call(owner, stakeAmount, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        contextMock.verify(setDelegation, times(1));
+        assertEquals(BigInteger.ZERO, staking.call("getPendingDelegationChange"));
+
+        // Pending changes can be submitted by anyone
+        sm.call(alice, stakeAmount, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        staking.invoke(alice, "submitDelegation");
+        contextMock.verify(setDelegation, times(2));
+
+        Executable nothingToSubmit = () -> staking.invoke(alice, "submitDelegation");
+        expectErrorMessage(nothingToSubmit, TAG + ": No pending delegation change.");
+
+        // A delegation chosen by a user is submitted whatever the threshold
+        sm.call(alice, stakeAmount, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        staking.invoke(alice, "delegate", (Object) new PrepDelegations[]{});
+        contextMock.verify(setDelegation, times(3));
+        assertEquals(BigInteger.ZERO, staking.call("getPendingDelegationChange"));
+    }
+
     @Test
     void claimUnstakedICX() {
-        BigInteger icxToClaim = BigInteger.valueOf(599L);
-        BigInteger icxPayable = BigInteger.valueOf(401L);
+        sm.call(owner, ICX.multiply(BigInteger.valueOf(199L)), staking.getAddress(), "stakeICX",
+                new Address(new byte[Address.LENGTH]), new byte[0]);
+        JSONObject data = getUnstakeJsonData();
+        BigInteger ownerUnstake = BigInteger.TEN;
+        BigInteger aliceUnstake = BigInteger.valueOf(5L);
+        staking.invoke(sicx, "tokenFallback", owner.getAddress(), ownerUnstake, data.toString().getBytes());
+        staking.invoke(sicx, "tokenFallback", alice.getAddress(), aliceUnstake, data.toString().getBytes());
+
+        BigInteger released = ownerUnstake.add(aliceUnstake);
+        contextMock.when(() -> Context.getBalance(any(Address.class))).thenReturn(released);
+        contextMock.when(getStake).thenReturn(Map.of("unstakes", List.of(Map.of("unstake", released))));
+        sm.call(sm.createAccount(), released, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
 
-        doReturn(BigInteger.TEN).when(stakingSpy).claimableICX(any(Address.class));
         doReturn(BigInteger.TWO).when(stakingSpy).totalClaimableIcx();
         String expectedErrorMessage ="Reverted(0): Staked ICX Manager: No sufficient icx to claim. Requested: 10 Available: 2";
         Executable claimMoreThanAvailable = () -> staking.invoke(owner, "claimUnstakedICX", owner.getAddress());
         expectErrorMessage(claimMoreThanAvailable, expectedErrorMessage);
 
-        doReturn(icxPayable).when(stakingSpy).claimableICX(any(Address.class));
-        doReturn(icxToClaim).when(stakingSpy).totalClaimableIcx();
-
+        doCallRealMethod().when(stakingSpy).totalClaimableIcx();
         contextMock.when(()->Context.transfer(any(Address.class), any(BigInteger.class))).then(invocationOnMock -> null);
 
-        staking.invoke(owner, "claimUnstakedICX", owner.getAddress());
-        verify(stakingSpy).FundTransfer(owner.getAddress(), icxPayable, icxPayable + " ICX sent to " + owner.getAddress() + ".");
-        contextMock.verify(() -> Context.transfer(owner.getAddress(), icxPayable));
+        staking.invoke(alice, "claimUnstakedICX", alice.getAddress());
+        verify(stakingSpy).FundTransfer(alice.getAddress(), aliceUnstake, aliceUnstake + " ICX sent to " + alice.getAddress() + ".");
+        contextMock.verify(() -> Context.transfer(alice.getAddress(), aliceUnstake));
+        assertEquals(BigInteger.ZERO, staking.call("claimableICX", alice.getAddress()));
+    }
+
+    @Test
+    void migrateUnstakeQueue() {
+        assertEquals(BigInteger.ZERO, staking.call("getUnstakeMigrationCursor"));
+
+        Executable nothingToMigrate = () -> staking.invoke(owner, "migrateUnstakeQueue", 0);
+        expectErrorMessage(nothingToMigrate, TAG + ": Unstake queue already migrated.");
+
+        Executable notOwner = () -> staking.invoke(alice, "migrateUnstakeQueue", 0);
+        expectErrorMessage(notOwner, "SenderNotScoreOwner");
     }
 
     @Test
@@ -611,6 +838,190 @@ class StakingTest extends TestBase {
         assertEquals(BigInteger.valueOf(150L), staking.call("totalClaimableIcx"));
     }
 
+    @Test
+    void unstakeBatch() {
+        sm.call(owner, ICX.multiply(BigInteger.valueOf(199L)), staking.getAddress(), "stakeICX",
+                new Address(new byte[Address.LENGTH]), new byte[0]);
+        Account bob = sm.createAccount();
+
+        JSONObject data = new JSONObject();
+        data.put("method", "unstakeBatch");
+        data.put("requests", List.of(Map.of("user", alice.getAddress().toString(), "amount", "0x64"),
+                Map.of("user", bob.getAddress().toString(), "amount", "50")));
+
+        JSONObject tooManyRequests = new JSONObject();
+        List<Map<String, String>> requests = new ArrayList<>();
+        for (int i = 0; i <= MAX_ITERATION_LOOP.intValue(); i++) {
+            requests.add(Map.of("user", alice.getAddress().toString(), "amount", "1"));
+        }
+        tooManyRequests.put("method", "unstakeBatch");
+        tooManyRequests.put("requests", requests);
+        Executable batchTooLarge = () -> staking.invoke(sicx, "tokenFallback", owner.getAddress(),
+                BigInteger.valueOf(requests.size()), tooManyRequests.toString().getBytes());
+        expectErrorMessage(batchTooLarge, "At most 100 unstake requests can be batched.");
+
+        String expectedErrorMessage = "Unstake amounts do not add up to the sICX received.";
+        Executable wrongTotal = () -> staking.invoke(sicx, "tokenFallback", owner.getAddress(),
+                BigInteger.valueOf(140L), data.toString().getBytes());
+        expectErrorMessage(wrongTotal, expectedErrorMessage);
+
+        staking.invoke(sicx, "tokenFallback", owner.getAddress(), BigInteger.valueOf(150L),
+                data.toString().getBytes());
+        BigInteger blockHeight = BigInteger.valueOf(sm.getBlock().getHeight());
+
+        BigInteger newTotalStake = ICX.multiply(BigInteger.valueOf(199L)).subtract(BigInteger.valueOf(150L));
+        assertEquals(newTotalStake, staking.call("getTotalStake"));
+        contextMock.verify(() -> Context.call(SYSTEM_SCORE_ADDRESS, "setStake", newTotalStake), times(1));
+        contextMock.verify(getUnstakeLockPeriod, times(1));
+
+        assertEquals(List.of(Map.of("amount", BigInteger.valueOf(100L), "from", owner.getAddress(), "blockHeight",
+                blockHeight.add(unlockPeriod), "sender", alice.getAddress())), staking.call("getUserUnstakeInfo",
+                alice.getAddress()));
+        assertEquals(List.of(Map.of("amount", BigInteger.valueOf(50L), "from", owner.getAddress(), "blockHeight",
+                blockHeight.add(unlockPeriod), "sender", bob.getAddress())), staking.call("getUserUnstakeInfo",
+                bob.getAddress()));
+        assertEquals(BigInteger.valueOf(150L), staking.call("getUnstakingAmount"));
+    }
+
+    @Test
+    void unstakeBatchRejectsZeroShares() {
+        // A reward against a large sICX supply takes the rate below one
+        BigInteger stakeAmount = BigInteger.valueOf(199L);
+        contextMock.when(() -> Context.getBalance(staking.getAddress())).thenReturn(stakeAmount.add(BigInteger.ONE));
+        contextMock.when(getSicxTotalSupply).thenReturn(BigInteger.valueOf(1000L));
+        doReturn(BigInteger.ONE).when(stakingSpy).getTotalStake();
+        sm.call(owner, stakeAmount, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        assertEquals(ICX.divide(BigInteger.valueOf(500L)), staking.call("getTodayRate"));
+
+        Account bob = sm.createAccount();
+        JSONObject data = new JSONObject();
+        data.put("method", "unstakeBatch");
+        data.put("requests", List.of(Map.of("user", alice.getAddress().toString(), "amount", "1"),
+                Map.of("user", bob.getAddress().toString(), "amount", "999")));
+
+        Executable zeroShare = () -> staking.invoke(sicx, "tokenFallback", owner.getAddress(),
+                BigInteger.valueOf(1000L), data.toString().getBytes());
+        expectErrorMessage(zeroShare, "Unstake request for " + alice.getAddress() + " is worth no ICX.");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getUnstakeInfoPage() {
+        sm.call(owner, ICX.multiply(BigInteger.valueOf(199L)), staking.getAddress(), "stakeICX",
+                new Address(new byte[Address.LENGTH]), new byte[0]);
+
+        JSONObject data = getUnstakeJsonData();
+        List<BigInteger> blockHeights = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            staking.invoke(sicx, "tokenFallback", owner.getAddress(), BigInteger.valueOf(10L * i),
+                    data.toString().getBytes());
+            blockHeights.add(BigInteger.valueOf(sm.getBlock().getHeight()).add(unlockPeriod));
+        }
+
+        String expectedErrorMessage = "Limit must be between 1 and 100.";
+        Executable zeroLimit = () -> staking.call("getUnstakeInfoPage", BigInteger.ZERO, 0);
+        expectErrorMessage(zeroLimit, expectedErrorMessage);
+
+        Map<String, Object> firstPage = (Map<String, Object>) staking.call("getUnstakeInfoPage", BigInteger.ZERO, 2);
+        assertEquals(List.of(
+                List.of(BigInteger.ONE, BigInteger.TEN, owner.getAddress(), blockHeights.get(0), owner.getAddress()),
+                List.of(BigInteger.TWO, BigInteger.valueOf(20L), owner.getAddress(), blockHeights.get(1),
+                        owner.getAddress())), firstPage.get("unstakes"));
+        assertEquals(BigInteger.valueOf(3L), firstPage.get("next"));
+
+        Map<String, Object> secondPage = (Map<String, Object>) staking.call("getUnstakeInfoPage", firstPage.get(
+                "next"), 2);
+        assertEquals(List.of(List.of(BigInteger.valueOf(3L), BigInteger.valueOf(30L), owner.getAddress(),
+                blockHeights.get(2), owner.getAddress())), secondPage.get("unstakes"));
+        assertEquals(BigInteger.ZERO, secondPage.get("next"));
+
+        // A cursor whose request has been removed restarts from the head of the queue
+        assertEquals(firstPage, staking.call("getUnstakeInfoPage", BigInteger.valueOf(99L), 2));
+
+        List<Map<String, Object>> userUnstakeInfo = (List<Map<String, Object>>) staking.call("getUserUnstakeInfo",
+                owner.getAddress());
+        assertEquals(3, userUnstakeInfo.size());
+        assertEquals(BigInteger.valueOf(30L), userUnstakeInfo.get(2).get("amount"));
+        assertEquals(List.of(), staking.call("getUserUnstakeInfo", alice.getAddress()));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void claimResolvesReleasedUnstakes() {
+        sm.call(owner, ICX.multiply(BigInteger.valueOf(199L)), staking.getAddress(), "stakeICX",
+                new Address(new byte[Address.LENGTH]), new byte[0]);
+
+        JSONObject data = getUnstakeJsonData();
+        staking.invoke(sicx, "tokenFallback", owner.getAddress(), BigInteger.valueOf(100L), data.toString().getBytes());
+        staking.invoke(sicx, "tokenFallback", alice.getAddress(), BigInteger.valueOf(50L), data.toString().getBytes());
+        BigInteger aliceBlockHeight = BigInteger.valueOf(sm.getBlock().getHeight());
+
+        // Release 120 of the 150 ICX in the queue
+        BigInteger released = BigInteger.valueOf(120L);
+        contextMock.when(() -> Context.getBalance(any(Address.class))).thenReturn(released);
+        Map<String, Object> unstakeList = new HashMap<>();
+        unstakeList.put("unstake", BigInteger.valueOf(150L));
+        contextMock.when(getStake).thenReturn(Map.of("unstakes", List.of(unstakeList)));
+        sm.call(sm.createAccount(), released, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+
+        contextMock.when(() -> Context.transfer(any(Address.class), any(BigInteger.class))).then(invocationOnMock -> null);
+        staking.invoke(owner, "claimUnstakedICX", owner.getAddress());
+        contextMock.verify(() -> Context.transfer(owner.getAddress(), BigInteger.valueOf(100L)));
+
+        assertEquals(BigInteger.ZERO, staking.call("claimableICX", owner.getAddress()));
+        assertEquals(BigInteger.valueOf(20L), staking.call("claimableICX", alice.getAddress()));
+        assertEquals(BigInteger.valueOf(20L), staking.call("totalClaimableIcx"));
+
+        List<List<Object>> unstakeDetails = new ArrayList<>();
+        unstakeDetails.add(List.of(BigInteger.TWO, BigInteger.valueOf(30L), alice.getAddress(),
+                aliceBlockHeight.add(unlockPeriod), alice.getAddress()));
+        assertArrayEquals(unstakeDetails.toArray(), ((List<List<Object>>) staking.call("getUnstakeInfo")).toArray());
+    }
+
+    @Test
+    void claimSettlesRequestsFromCursor() {
+        sm.call(owner, ICX.multiply(BigInteger.valueOf(199L)), staking.getAddress(), "stakeICX",
+                new Address(new byte[Address.LENGTH]), new byte[0]);
+
+        JSONObject data = getUnstakeJsonData();
+        for (int i = 1; i <= 3; i++) {
+            staking.invoke(sicx, "tokenFallback", owner.getAddress(), BigInteger.valueOf(10L * i),
+                    data.toString().getBytes());
+        }
+        contextMock.when(() -> Context.transfer(any(Address.class), any(BigInteger.class))).then(invocationOnMock -> null);
+
+        // Release 25 of the 60 ICX in the queue, the second request being partly released
+        BigInteger released = BigInteger.valueOf(25L);
+        contextMock.when(() -> Context.getBalance(any(Address.class))).thenReturn(released);
+        contextMock.when(getStake).thenReturn(Map.of("unstakes", List.of(Map.of("unstake",
+                BigInteger.valueOf(60L)))));
+        sm.call(sm.createAccount(), released, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        assertEquals(released, staking.call("claimableICX", owner.getAddress()));
+        staking.invoke(owner, "claimUnstakedICX", owner.getAddress());
+        contextMock.verify(() -> Context.transfer(owner.getAddress(), released));
+        assertEquals(BigInteger.ZERO, staking.call("claimableICX", owner.getAddress()));
+
+        List<?> pending = (List<?>) staking.call("getUserUnstakeInfo", owner.getAddress());
+        assertEquals(2, pending.size());
+        assertEquals(BigInteger.valueOf(15L), ((Map<?, ?>) pending.get(0)).get("amount"));
+        assertEquals(BigInteger.valueOf(30L), ((Map<?, ?>) pending.get(1)).get("amount"));
+
+        // Releasing the rest only pays out what was not claimed from the partly released request
+        BigInteger rest = BigInteger.valueOf(35L);
+        contextMock.when(() -> Context.getBalance(any(Address.class))).thenReturn(rest);
+        contextMock.when(getStake).thenReturn(Map.of("unstakes", List.of(Map.of("unstake", rest))));
+        sm.call(sm.createAccount(), rest, staking.getAddress(), "stakeICX", new Address(new byte[Address.LENGTH]),
+                new byte[0]);
+        staking.invoke(owner, "claimUnstakedICX", owner.getAddress());
+        contextMock.verify(() -> Context.transfer(owner.getAddress(), rest));
+        assertEquals(BigInteger.ZERO, staking.call("claimableICX", owner.getAddress()));
+        assertEquals(List.of(), staking.call("getUserUnstakeInfo", owner.getAddress()));
+        assertEquals(List.of(), staking.call("getUnstakeInfo"));
+    }
+
     @Test
     void transferUpdateDelegations() {
 
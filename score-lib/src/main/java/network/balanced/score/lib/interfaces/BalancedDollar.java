@@ -29,6 +29,7 @@ import score.annotation.External;
 import score.annotation.Optional;
 
 import java.math.BigInteger;
+import java.util.Map;
 
 @ScoreClient
 @ScoreInterface
@@ -52,6 +53,9 @@ public interface BalancedDollar extends IRC2BurnableInterface, IRC2Mintable, Gov
     @External(readonly = true)
     BigInteger getPriceUpdateTime();
 
+    @External(readonly = true)
+    Map<String, Object> getPriceWithTimestamp();
+
     @External
     BigInteger priceInLoop();
 
@@ -26,6 +26,7 @@ import score.annotation.EventLog;
 import score.annotation.External;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.Map;
 
 @ScoreClient
@@ -51,6 +52,9 @@ public interface BalancedToken extends IRC2Mintable, IRC2BurnableInterface, Gove
     @External(readonly = true)
     BigInteger getPriceUpdateTime();
 
+    @External(readonly = true)
+    Map<String, Object> getPriceWithTimestamp();
+
     @External
     BigInteger priceInLoop();
 
@@ -69,6 +73,18 @@ public interface BalancedToken extends IRC2Mintable, IRC2BurnableInterface, Gove
     @External(readonly = true)
     BigInteger availableBalanceOf(Address _owner);
 
+    @External
+    void setDividendsPullMode(boolean _enabled);
+
+    @External(readonly = true)
+    boolean getDividendsPullMode();
+
+    @External(readonly = true)
+    BigInteger getDividendsStake(Address _account);
+
+    @External
+    void syncDividendsStake(Address[] _accounts);
+
     @External(readonly = true)
     boolean getStakingEnabled();
 
@@ -87,6 +103,18 @@ public interface BalancedToken extends IRC2Mintable, IRC2BurnableInterface, Gove
     @External(readonly = true)
     boolean getSnapshotEnabled();
 
+    @External
+    void validateAvailableBalances(Address[] _accounts);
+
+    @External(readonly = true)
+    BigInteger getValidatedSupply();
+
+    @External
+    void enableDerivedAvailableBalance();
+
+    @External(readonly = true)
+    boolean isAvailableBalanceDerived();
+
     @External
     void toggleStakingEnabled();
 
@@ -111,6 +139,9 @@ public interface BalancedToken extends IRC2Mintable, IRC2BurnableInterface, Gove
     @External(readonly = true)
     BigInteger stakedBalanceOfAt(Address _account, BigInteger _day);
 
+    @External(readonly = true)
+    List<BigInteger> stakedBalancesOfAt(Address[] _accounts, BigInteger _day);
+
     @External(readonly = true)
     BigInteger totalStakedBalanceOfAt(BigInteger _day);
 
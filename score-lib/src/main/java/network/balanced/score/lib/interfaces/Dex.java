@@ -176,6 +176,15 @@ public interface Dex extends AdminAddress, BnusdAddress, GovernanceAddress, Name
     @External(readonly = true)
     BigInteger totalBalnAt(BigInteger _id, BigInteger _snapshot_id, @Optional boolean _twa);
 
+    @External(readonly = true)
+    List<BigInteger> balancesOfAt(Address _account, BigInteger[] _ids, BigInteger _snapshot_id);
+
+    @External(readonly = true)
+    List<List<BigInteger>> balancesOfAccountsAt(Address[] _accounts, BigInteger[] _ids, BigInteger _snapshot_id);
+
+    @External(readonly = true)
+    List<Map<String, BigInteger>> poolSnapshotsAt(BigInteger[] _ids, BigInteger _snapshot_id);
+
     @External(readonly = true)
     BigInteger getTotalValue(String _name, BigInteger _snapshot_id);
 
@@ -69,6 +69,9 @@ public interface Dividends extends AdminAddress, GovernanceAddress, LoansAddress
     @External
     void addAcceptedTokens(Address _token);
 
+    @External
+    void updateAcceptedTokens();
+
     @External(readonly = true)
     List<String> getDividendsCategories();
 
@@ -120,6 +123,24 @@ public interface Dividends extends AdminAddress, GovernanceAddress, LoansAddress
     @External
     void accumulateDividends(Address user, @Optional int _start, @Optional int _end);
 
+    @External(readonly = true)
+    BigInteger getLegacyDividendsDay(Address user);
+
+    @External
+    void addLegacyStakers(Address[] _stakers);
+
+    @External(readonly = true)
+    Map<String, BigInteger> getLegacyPrecomputeStatus();
+
+    @External
+    void precomputeLegacyDividends(@Optional int _limit);
+
+    @External
+    void setBalnStakePullMode(boolean _enabled);
+
+    @External(readonly = true)
+    boolean getBalnStakePullMode();
+
     @External
     void updateBalnStake(Address user, BigInteger prevStakedBalance, BigInteger currentTotalSupply);
 
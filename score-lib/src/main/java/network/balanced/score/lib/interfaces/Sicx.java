@@ -21,6 +21,7 @@ import foundation.icon.score.client.ScoreInterface;
 import network.balanced.score.lib.interfaces.addresses.StakingAddress;
 import network.balanced.score.lib.interfaces.tokens.IRC2BurnableInterface;
 import network.balanced.score.lib.interfaces.tokens.IRC2Mintable;
+import score.Address;
 import score.annotation.External;
 
 import java.math.BigInteger;
@@ -38,4 +39,16 @@ public interface Sicx extends StakingAddress, IRC2BurnableInterface, IRC2Mintabl
     @External(readonly = true)
     BigInteger lastPriceInLoop();
 
+    @External
+    void setCustomDelegation(Address _user, boolean _custom);
+
+    @External(readonly = true)
+    boolean hasCustomDelegation(Address _user);
+
+    @External
+    void setDelegationFlagsSynced(boolean _synced);
+
+    @External(readonly = true)
+    boolean getDelegationFlagsSynced();
+
 }
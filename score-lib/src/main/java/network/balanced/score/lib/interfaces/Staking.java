@@ -45,6 +45,9 @@ public interface Staking {
     @External(readonly = true)
     BigInteger getTodayRate();
 
+    @External(readonly = true)
+    BigInteger getRateAt(BigInteger _blockHeight);
+
     @External
     void toggleStakingOn();
 
@@ -60,6 +63,30 @@ public interface Staking {
     @External(readonly = true)
     BigInteger getUnstakeBatchLimit();
 
+    @External
+    void migrateUnstakeQueue(@Optional int _limit);
+
+    @External(readonly = true)
+    BigInteger getUnstakeMigrationCursor();
+
+    @External
+    void setDelegationThreshold(BigInteger _threshold);
+
+    @External(readonly = true)
+    BigInteger getDelegationThreshold();
+
+    @External(readonly = true)
+    BigInteger getPendingDelegationChange();
+
+    @External
+    void submitDelegation();
+
+    @External
+    void migrateUserDelegations(Address[] _users);
+
+    @External
+    void completeUserDelegationsMigration();
+
     @External(readonly = true)
     List<Address> getPrepList();
 
@@ -115,6 +142,9 @@ public interface Staking {
     @External(readonly = true)
     List<List<Object>> getUnstakeInfo();
 
+    @External(readonly = true)
+    Map<String, Object> getUnstakeInfoPage(BigInteger _cursor, int _limit);
+
     @External(readonly = true)
     List<Map<String, Object>> getUserUnstakeInfo(Address _address);
 }
@@ -45,6 +45,21 @@ public interface IRC2 {
     @External
     void transfer(Address _to, BigInteger _value, @Optional byte[] _data);
 
+    @External(readonly = true)
+    BigInteger allowance(Address _owner, Address _spender);
+
+    @External
+    void approve(Address _spender, BigInteger _value);
+
+    @External
+    void transferFrom(Address _from, Address _to, BigInteger _value, @Optional byte[] _data);
+
+    @External
+    void batchTransfer(Address[] _to, BigInteger[] _values, @Optional byte[] _data);
+
     @EventLog
     void Transfer(Address _from, Address _to, BigInteger _value, byte[] _data);
+
+    @EventLog
+    void Approval(Address _owner, Address _spender, BigInteger _value);
 }
\ No newline at end of file
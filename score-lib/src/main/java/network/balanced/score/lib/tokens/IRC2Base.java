@@ -18,6 +18,7 @@ package network.balanced.score.lib.tokens;
 
 import network.balanced.score.lib.interfaces.tokens.IRC2;
 import score.Address;
+import score.BranchDB;
 import score.Context;
 import score.DictDB;
 import score.VarDB;
@@ -34,6 +35,7 @@ public class IRC2Base implements IRC2 {
     private final static String DECIMALS = "decimals";
     private final static String TOTAL_SUPPLY = "total_supply";
     private final static String BALANCES = "balances";
+    private final static String ALLOWANCES = "allowances";
 
     static final Address ZERO_ADDRESS = new Address(new byte[Address.LENGTH]);
 
@@ -42,6 +44,9 @@ public class IRC2Base implements IRC2 {
     private final VarDB<BigInteger> decimals = Context.newVarDB(DECIMALS, BigInteger.class);
     private final VarDB<BigInteger> totalSupply = Context.newVarDB(TOTAL_SUPPLY, BigInteger.class);
     protected final DictDB<Address, BigInteger> balances = Context.newDictDB(BALANCES, BigInteger.class);
+    // [owner][spender] = amount the spender may still transfer from the owner
+    private final BranchDB<Address, DictDB<Address, BigInteger>> allowances = Context.newBranchDB(ALLOWANCES,
+            BigInteger.class);
 
     IRC2Base(String _tokenName, String _symbolName, @Optional BigInteger _decimals) {
         if (this.name.get() == null) {
@@ -58,6 +63,10 @@ public class IRC2Base implements IRC2 {
     public void Transfer(Address _from, Address _to, BigInteger _value, byte[] _data) {
     }
 
+    @EventLog(indexed = 2)
+    public void Approval(Address _owner, Address _spender, BigInteger _value) {
+    }
+
     private String ensureNotEmpty(String str) {
         Context.require(str != null && !str.trim().isEmpty(), "str is null or empty");
         assert str != null;
@@ -109,6 +118,71 @@ public class IRC2Base implements IRC2 {
         }
     }
 
+    @External(readonly = true)
+    public BigInteger allowance(Address _owner, Address _spender) {
+        return allowances.at(_owner).getOrDefault(_spender, BigInteger.ZERO);
+    }
+
+    @External
+    public void approve(Address _spender, BigInteger _value) {
+        Context.require(_value.compareTo(BigInteger.ZERO) >= 0, this.name.get() + ": _value needs to be positive");
+        Address owner = Context.getCaller();
+        allowances.at(owner).set(_spender, _value);
+        Approval(owner, _spender, _value);
+    }
+
+    @External
+    public void transferFrom(Address _from, Address _to, BigInteger _value, @Optional byte[] _data) {
+        spendAllowance(_from, Context.getCaller(), _value);
+        transfer(_from, _to, _value, _data);
+    }
+
+    /**
+     * Lowers the allowance of the spender by the value it transfers from the owner.
+     */
+    protected void spendAllowance(Address _owner, Address _spender, BigInteger _value) {
+        Context.require(_value.compareTo(BigInteger.ZERO) >= 0, this.name.get() + ": _value needs to be positive");
+        BigInteger allowance = allowance(_owner, _spender);
+        Context.require(allowance.compareTo(_value) >= 0, this.name.get() + ": Insufficient allowance");
+        allowances.at(_owner).set(_spender, allowance.subtract(_value));
+    }
+
+    @External
+    public void batchTransfer(Address[] _to, BigInteger[] _values, @Optional byte[] _data) {
+        batchTransfer(Context.getCaller(), _to, _values, _data);
+    }
+
+    /**
+     * Transfers to several recipients with a single debit of the sender. Recipients are credited and notified in
+     * order, and only contract recipients receive a tokenFallback call, after every balance has been updated.
+     */
+    protected void batchTransfer(Address _from, Address[] _to, BigInteger[] _values, byte[] _data) {
+        Context.require(_to.length == _values.length, this.name.get() + ": Recipients and values must have the same " +
+                "length");
+
+        BigInteger total = BigInteger.ZERO;
+        for (BigInteger value : _values) {
+            Context.require(value.compareTo(BigInteger.ZERO) >= 0, this.name.get() + ": _value needs to be positive");
+            total = total.add(value);
+        }
+
+        BigInteger balance = balanceOf(_from);
+        Context.require(balance.compareTo(total) >= 0, this.name.get() + ": Insufficient balance");
+        this.balances.set(_from, balance.subtract(total));
+
+        byte[] dataBytes = (_data == null) ? "None".getBytes() : _data;
+        for (int i = 0; i < _to.length; i++) {
+            this.balances.set(_to[i], balanceOf(_to[i]).add(_values[i]));
+            Transfer(_from, _to[i], _values[i], dataBytes);
+        }
+
+        for (int i = 0; i < _to.length; i++) {
+            if (_to[i].isContract()) {
+                Context.call(_to[i], "tokenFallback", _from, _values[i], dataBytes);
+            }
+        }
+    }
+
     protected void mint(Address owner, BigInteger amount) {
         Context.require(!ZERO_ADDRESS.equals(owner), this.name.get() + ": Owner address cannot be zero address");
         Context.require(amount.compareTo(BigInteger.ZERO) >= 0, this.name.get() + ": Amount needs to be positive");
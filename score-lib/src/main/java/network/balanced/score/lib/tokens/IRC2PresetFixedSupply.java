@@ -21,7 +21,7 @@ import score.Context;
 
 import java.math.BigInteger;
 
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.FixedPoint.tenPow;
 
 public class IRC2PresetFixedSupply extends IRC2Base {
 
@@ -32,7 +32,7 @@ public class IRC2PresetFixedSupply extends IRC2Base {
             Context.require(_initialSupply.compareTo(BigInteger.ZERO) > 0, "Initial Supply cannot be less than or " +
                     "equal to than zero");
 
-            BigInteger totalSupply = _initialSupply.multiply(pow(BigInteger.TEN, _decimals.intValue()));
+            BigInteger totalSupply = _initialSupply.multiply(tenPow(_decimals.intValue()));
             final Address caller = Context.getCaller();
             mint(caller, totalSupply);
         }
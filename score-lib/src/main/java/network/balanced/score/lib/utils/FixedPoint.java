@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.lib.utils;
+
+import score.Context;
+
+import java.math.BigInteger;
+
+import static network.balanced.score.lib.utils.Constants.EXA;
+
+/**
+ * Named helpers for arithmetic on 18 decimal fixed point numbers. They are plain wrappers around the chained
+ * multiply/divide, with the same cost and the same rounding towards zero, so call sites read the same everywhere.
+ */
+public class FixedPoint {
+    // An immutable constant like EXA, not a cache
+    public static final BigInteger EXA_SQUARED = EXA.multiply(EXA);
+
+    /**
+     * @return a * b / denominator
+     */
+    public static BigInteger mulDiv(BigInteger a, BigInteger b, BigInteger denominator) {
+        return a.multiply(b).divide(denominator);
+    }
+
+    public static BigInteger exaMul(BigInteger a, BigInteger b) {
+        return a.multiply(b).divide(EXA);
+    }
+
+    public static BigInteger exaDiv(BigInteger a, BigInteger b) {
+        return a.multiply(EXA).divide(b);
+    }
+
+    /**
+     * @return 10^exponent. Reverts on a negative exponent.
+     */
+    public static BigInteger tenPow(int exponent) {
+        Context.require(exponent >= 0, "Exponent cannot be negative");
+        return BigInteger.TEN.pow(exponent);
+    }
+
+    /**
+     * Raises an 18 decimal base to an integer power by squaring, the same algorithm and rounding as the previous
+     * Math.exaPow. Returns early once the squared base rounds to zero, as the result is then zero for any remaining
+     * exponent. Reverts on a negative exponent.
+     */
+    public static BigInteger exaPow(BigInteger base, int exponent) {
+        Context.require(exponent >= 0, "Exponent cannot be negative");
+        if (exponent == 0) {
+            return EXA;
+        }
+
+        BigInteger res = (exponent & 1) == 0 ? EXA : base;
+        exponent >>= 1;
+
+        while (exponent != 0) {
+            base = exaMul(base, base);
+            // Every remaining factor is a power of this one, so the result has rounded to zero
+            if (base.signum() == 0) {
+                return BigInteger.ZERO;
+            }
+            if ((exponent & 1) != 0) {
+                res = exaMul(res, base);
+            }
+            exponent >>= 1;
+        }
+
+        return res;
+    }
+}
@@ -21,8 +21,6 @@ import score.UserRevertedException;
 
 import java.math.BigInteger;
 
-import static network.balanced.score.lib.utils.Constants.EXA;
-
 public class Math {
     public static BigInteger pow(BigInteger base, int exponent) {
         BigInteger res = BigInteger.ONE;
@@ -32,24 +30,11 @@ public class Math {
         return res;
     }
 
+    /**
+     * Same as {@link FixedPoint#exaPow}, so a negative exponent reverts instead of yielding a meaningless result.
+     */
     public static BigInteger exaPow(BigInteger base, int exponent) {
-        BigInteger res = base;
-        if (exponent % 2 == 0) {
-            res = EXA;
-        }
-
-        exponent = exponent / 2;
-
-        while (exponent != 0) {
-            base = base.multiply(base).divide(EXA);
-            if (exponent % 2 != 0) {
-                res = res.multiply(base).divide(EXA);
-            }
-
-            exponent = exponent / 2;
-        }
-
-        return res;
+        return FixedPoint.exaPow(base, exponent);
     }
 
     public static BigInteger convertToNumber(JsonValue value) {
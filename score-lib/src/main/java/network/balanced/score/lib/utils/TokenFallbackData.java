@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.lib.utils;
+
+import score.Address;
+import score.ByteArrayObjectWriter;
+import score.Context;
+import score.ObjectReader;
+
+import java.math.BigInteger;
+
+/**
+ * Binary tokenFallback payloads, encoded as an RLP list of a method tag followed by the typed fields of that method.
+ * An RLP list always starts with a byte of 0xc0 or above, while a JSON payload starts with '{', so receivers can
+ * accept both formats.
+ */
+public class TokenFallbackData {
+    private static final String CODEC = "RLPn";
+
+    private static final int DEPOSIT_TAG = 1;
+    private static final int SWAP_TAG = 2;
+    private static final int SWAP_ICX_TAG = 3;
+    private static final int DEPOSIT_AND_BORROW_TAG = 4;
+    private static final int RETURN_ASSET_TAG = 5;
+
+    public static final String DEPOSIT = "_deposit";
+    public static final String SWAP = "_swap";
+    public static final String SWAP_ICX = "_swap_icx";
+    public static final String DEPOSIT_AND_BORROW = "depositAndBorrow";
+    public static final String RETURN_ASSET = "_returnAsset";
+
+    private final String method;
+    private final Address toToken;
+    private final BigInteger minimumReceive;
+    private final Address receiver;
+    private final String asset;
+    private final BigInteger amount;
+
+    private TokenFallbackData(String method, Address toToken, BigInteger minimumReceive, Address receiver,
+                              String asset, BigInteger amount) {
+        this.method = method;
+        this.toToken = toToken;
+        this.minimumReceive = minimumReceive;
+        this.receiver = receiver;
+        this.asset = asset;
+        this.amount = amount;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public Address getToToken() {
+        return toToken;
+    }
+
+    public BigInteger getMinimumReceive() {
+        return minimumReceive;
+    }
+
+    /**
+     * @return Recipient of the swapped tokens, or null to send them back to the sender
+     */
+    public Address getReceiver() {
+        return receiver;
+    }
+
+    public String getAsset() {
+        return asset;
+    }
+
+    /**
+     * @return Amount of the asset to borrow, or null to only deposit collateral
+     */
+    public BigInteger getAmount() {
+        return amount;
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && (data[0] & 0xff) >= 0xc0;
+    }
+
+    public static byte[] deposit() {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter(CODEC);
+        writer.beginList(1);
+        writer.write(DEPOSIT_TAG);
+        writer.end();
+        return writer.toByteArray();
+    }
+
+    public static byte[] swapIcx() {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter(CODEC);
+        writer.beginList(1);
+        writer.write(SWAP_ICX_TAG);
+        writer.end();
+        return writer.toByteArray();
+    }
+
+    /**
+     * @param receiver Recipient of the swapped tokens, or null to send them back to the sender
+     */
+    public static byte[] swap(Address toToken, BigInteger minimumReceive, Address receiver) {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter(CODEC);
+        writer.beginList(4);
+        writer.write(SWAP_TAG);
+        writer.write(toToken);
+        writer.write(minimumReceive);
+        writer.writeNullable(receiver);
+        writer.end();
+        return writer.toByteArray();
+    }
+
+    /**
+     * @param amount Amount of the asset to borrow, or null to only deposit collateral
+     */
+    public static byte[] depositAndBorrow(String asset, BigInteger amount) {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter(CODEC);
+        writer.beginList(3);
+        writer.write(DEPOSIT_AND_BORROW_TAG);
+        writer.write(asset);
+        writer.writeNullable(amount);
+        writer.end();
+        return writer.toByteArray();
+    }
+
+    /**
+     * @param asset Asset that Stability returns for the bnUSD sent
+     */
+    public static byte[] returnAsset(Address asset) {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter(CODEC);
+        writer.beginList(2);
+        writer.write(RETURN_ASSET_TAG);
+        writer.write(asset);
+        writer.end();
+        return writer.toByteArray();
+    }
+
+    public static TokenFallbackData decode(byte[] data) {
+        ObjectReader reader = Context.newByteArrayObjectReader(CODEC, data);
+        String method = null;
+        Address toToken = null;
+        BigInteger minimumReceive = null;
+        Address receiver = null;
+        String asset = null;
+        BigInteger amount = null;
+
+        reader.beginList();
+        int tag = reader.readInt();
+        switch (tag) {
+            case DEPOSIT_TAG:
+                method = DEPOSIT;
+                break;
+            case SWAP_TAG:
+                method = SWAP;
+                toToken = reader.readAddress();
+                minimumReceive = reader.readBigInteger();
+                receiver = reader.readNullable(Address.class);
+                break;
+            case SWAP_ICX_TAG:
+                method = SWAP_ICX;
+                break;
+            case DEPOSIT_AND_BORROW_TAG:
+                method = DEPOSIT_AND_BORROW;
+                asset = reader.readString();
+                amount = reader.readNullable(BigInteger.class);
+                break;
+            case RETURN_ASSET_TAG:
+                method = RETURN_ASSET;
+                toToken = reader.readAddress();
+                break;
+            default:
+                Context.revert("Unsupported token fallback method tag " + tag);
+        }
+        reader.end();
+        return new TokenFallbackData(method, toToken, minimumReceive, receiver, asset, amount);
+    }
+}
@@ -97,6 +97,58 @@ class IRC2MintableTest extends TestBase {
         verify(tokenSpy).Transfer(alice.getAddress(), alice.getAddress(), value, new byte[0]);
     }
 
+    @Test
+    void approveAndTransferFrom() {
+        Account spender = sm.createAccount();
+        Account alice = sm.createAccount();
+        BigInteger value = BigInteger.TEN.pow(decimals.intValue());
+        BigInteger ownerBalance = (BigInteger) tokenScore.call("balanceOf", owner.getAddress());
+
+        tokenScore.invoke(owner, "approve", spender.getAddress(), value.multiply(BigInteger.TWO));
+        assertEquals(value.multiply(BigInteger.TWO), tokenScore.call("allowance", owner.getAddress(),
+                spender.getAddress()));
+        verify(tokenSpy).Approval(owner.getAddress(), spender.getAddress(), value.multiply(BigInteger.TWO));
+
+        tokenScore.invoke(spender, "transferFrom", owner.getAddress(), alice.getAddress(), value, new byte[0]);
+        assertEquals(ownerBalance.subtract(value), tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(value, tokenScore.call("balanceOf", alice.getAddress()));
+        assertEquals(value, tokenScore.call("allowance", owner.getAddress(), spender.getAddress()));
+        verify(tokenSpy).Transfer(owner.getAddress(), alice.getAddress(), value, new byte[0]);
+
+        Executable overAllowance = () -> tokenScore.invoke(spender, "transferFrom", owner.getAddress(),
+                alice.getAddress(), value.add(BigInteger.ONE), new byte[0]);
+        expectErrorMessage(overAllowance, name + ": Insufficient allowance");
+
+        Executable notApproved = () -> tokenScore.invoke(alice, "transferFrom", owner.getAddress(),
+                alice.getAddress(), value, new byte[0]);
+        expectErrorMessage(notApproved, name + ": Insufficient allowance");
+    }
+
+    @Test
+    void batchTransfer() {
+        Account alice = sm.createAccount();
+        Account bob = sm.createAccount();
+        BigInteger value = BigInteger.TEN.pow(decimals.intValue());
+        BigInteger ownerBalance = (BigInteger) tokenScore.call("balanceOf", owner.getAddress());
+
+        Address[] recipients = new Address[]{alice.getAddress(), bob.getAddress(), owner.getAddress()};
+        BigInteger[] values = new BigInteger[]{value, value.multiply(BigInteger.TWO), value};
+        tokenScore.invoke(owner, "batchTransfer", recipients, values, new byte[0]);
+        assertEquals(ownerBalance.subtract(value.multiply(BigInteger.valueOf(3))), tokenScore.call("balanceOf",
+                owner.getAddress()));
+        assertEquals(value, tokenScore.call("balanceOf", alice.getAddress()));
+        assertEquals(value.multiply(BigInteger.TWO), tokenScore.call("balanceOf", bob.getAddress()));
+        verify(tokenSpy).Transfer(owner.getAddress(), bob.getAddress(), value.multiply(BigInteger.TWO), new byte[0]);
+
+        Executable lengthMismatch = () -> tokenScore.invoke(owner, "batchTransfer", recipients,
+                new BigInteger[]{value}, new byte[0]);
+        expectErrorMessage(lengthMismatch, name + ": Recipients and values must have the same length");
+
+        Executable insufficientBalance = () -> tokenScore.invoke(alice, "batchTransfer",
+                new Address[]{bob.getAddress(), owner.getAddress()}, new BigInteger[]{value, value}, new byte[0]);
+        expectErrorMessage(insufficientBalance, name + ": Insufficient balance");
+    }
+
     @Test
     void getMinter() {
         assertEquals(owner.getAddress(), tokenScore.call("getMinter"));
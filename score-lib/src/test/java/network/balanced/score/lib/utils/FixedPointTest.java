@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.lib.utils;
+
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static network.balanced.score.lib.utils.Constants.EXA;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FixedPointTest extends TestBase {
+
+    @Test
+    public void testExaPowMatchesRepeatedMultiplication() {
+        // Bases whose powers are exact in 18 decimals, so squaring and repeated multiplication agree
+        BigInteger[] bases = new BigInteger[]{BigInteger.TWO.multiply(EXA), EXA.divide(BigInteger.TWO)};
+        int[] maxExponents = new int[]{64, 18};
+        for (int i = 0; i < bases.length; i++) {
+            BigInteger expected = EXA;
+            for (int exponent = 0; exponent <= maxExponents[i]; exponent++) {
+                assertEquals(expected, FixedPoint.exaPow(bases[i], exponent));
+                expected = expected.multiply(bases[i]).divide(EXA);
+            }
+        }
+    }
+
+    @Test
+    public void testExaPowRoundsToZero() {
+        BigInteger base = EXA.divide(BigInteger.TWO);
+        int cutoff = 0;
+        while (legacyExaPow(base, cutoff).signum() > 0) {
+            cutoff++;
+        }
+
+        assertEquals(legacyExaPow(base, cutoff - 1), FixedPoint.exaPow(base, cutoff - 1));
+        assertEquals(BigInteger.ZERO, FixedPoint.exaPow(base, cutoff));
+        assertEquals(BigInteger.ZERO, FixedPoint.exaPow(base, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testMulDiv() {
+        BigInteger a = BigInteger.valueOf(7).multiply(EXA);
+        BigInteger b = BigInteger.valueOf(3).multiply(EXA);
+        assertEquals(a.multiply(b).divide(EXA), FixedPoint.exaMul(a, b));
+        assertEquals(a.multiply(EXA).divide(b), FixedPoint.exaDiv(a, b));
+        assertEquals(a.multiply(b).divide(BigInteger.valueOf(11)), FixedPoint.mulDiv(a, b, BigInteger.valueOf(11)));
+    }
+
+    @Test
+    public void testTenPow() {
+        for (int exponent = 0; exponent <= 40; exponent++) {
+            assertEquals(BigInteger.TEN.pow(exponent), FixedPoint.tenPow(exponent));
+        }
+        assertEquals(EXA, FixedPoint.tenPow(18));
+        assertEquals(EXA.multiply(EXA), FixedPoint.EXA_SQUARED);
+    }
+
+    @Test
+    public void testNegativeExponentReverts() {
+        Throwable error = assertThrows(Throwable.class, () -> FixedPoint.tenPow(-1));
+        assertTrue(error.getMessage().contains("Exponent cannot be negative"));
+
+        error = assertThrows(Throwable.class, () -> Math.exaPow(EXA, -1));
+        assertTrue(error.getMessage().contains("Exponent cannot be negative"));
+    }
+
+    @Test
+    public void testAgainstPreviousImplementations() {
+        for (int exponent = 0; exponent <= 40; exponent++) {
+            assertEquals(Math.pow(BigInteger.TEN, exponent), FixedPoint.tenPow(exponent));
+        }
+
+        BigInteger base = EXA.subtract(BigInteger.valueOf(12345678901234L));
+        for (int exponent = 0; exponent <= 1024; exponent++) {
+            assertEquals(legacyExaPow(base, exponent), FixedPoint.exaPow(base, exponent));
+        }
+    }
+
+    private static BigInteger legacyExaPow(BigInteger base, int exponent) {
+        BigInteger res = base;
+        if (exponent % 2 == 0) {
+            res = EXA;
+        }
+
+        exponent = exponent / 2;
+        while (exponent != 0) {
+            base = base.multiply(base).divide(EXA);
+            if (exponent % 2 != 0) {
+                res = res.multiply(base).divide(EXA);
+            }
+            exponent = exponent / 2;
+        }
+
+        return res;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.lib.utils;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.Test;
+import score.Address;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenFallbackDataTest extends TestBase {
+
+    @Test
+    public void testSwapRoundTrip() {
+        Account toToken = Account.newScoreAccount(scoreCount++);
+        Account receiver = Account.newScoreAccount(scoreCount++);
+        BigInteger minimumReceive = BigInteger.valueOf(1234);
+
+        byte[] data = TokenFallbackData.swap(toToken.getAddress(), minimumReceive, receiver.getAddress());
+        assertTrue(TokenFallbackData.isBinary(data));
+        TokenFallbackData decoded = TokenFallbackData.decode(data);
+        assertEquals(TokenFallbackData.SWAP, decoded.getMethod());
+        assertEquals(toToken.getAddress(), decoded.getToToken());
+        assertEquals(minimumReceive, decoded.getMinimumReceive());
+        assertEquals(receiver.getAddress(), decoded.getReceiver());
+
+        decoded = TokenFallbackData.decode(TokenFallbackData.swap(toToken.getAddress(), BigInteger.ZERO, null));
+        assertNull(decoded.getReceiver());
+    }
+
+    @Test
+    public void testDepositAndBorrowRoundTrip() {
+        BigInteger amount = BigInteger.TEN.pow(18);
+        TokenFallbackData decoded = TokenFallbackData.decode(TokenFallbackData.depositAndBorrow("bnUSD", amount));
+        assertEquals(TokenFallbackData.DEPOSIT_AND_BORROW, decoded.getMethod());
+        assertEquals("bnUSD", decoded.getAsset());
+        assertEquals(amount, decoded.getAmount());
+
+        decoded = TokenFallbackData.decode(TokenFallbackData.depositAndBorrow("bnUSD", null));
+        assertNull(decoded.getAmount());
+    }
+
+    @Test
+    public void testReturnAssetRoundTrip() {
+        Account asset = Account.newScoreAccount(scoreCount++);
+        TokenFallbackData decoded = TokenFallbackData.decode(TokenFallbackData.returnAsset(asset.getAddress()));
+        assertEquals(TokenFallbackData.RETURN_ASSET, decoded.getMethod());
+        assertEquals(asset.getAddress(), decoded.getToToken());
+    }
+
+    /**
+     * Input is charged per byte, so the binary payloads must be smaller than the JSON payloads they replace.
+     */
+    @Test
+    public void testBinaryIsSmallerThanJson() {
+        Address toToken = Account.newScoreAccount(scoreCount++).getAddress();
+        Address receiver = Account.newScoreAccount(scoreCount++).getAddress();
+        BigInteger amount = BigInteger.TEN.pow(18);
+
+        byte[] swapJson = ("{\"method\": \"_swap\", \"params\": {\"toToken\": \"" + toToken + "\", " +
+                "\"minimumReceive\": \"" + amount + "\", \"receiver\": \"" + receiver + "\"}}").getBytes();
+        assertTrue(TokenFallbackData.swap(toToken, amount, receiver).length < swapJson.length);
+
+        byte[] depositJson = "{\"method\": \"_deposit\"}".getBytes();
+        assertTrue(TokenFallbackData.deposit().length < depositJson.length);
+
+        byte[] borrowJson = ("{\"_asset\": \"bnUSD\", \"_amount\": \"" + amount + "\"}").getBytes();
+        assertTrue(TokenFallbackData.depositAndBorrow("bnUSD", amount).length < borrowJson.length);
+    }
+
+    @Test
+    public void testJsonIsNotBinary() {
+        assertFalse(TokenFallbackData.isBinary("{\"method\": \"_deposit\"}".getBytes()));
+        assertFalse(TokenFallbackData.isBinary(new byte[0]));
+        assertEquals(TokenFallbackData.DEPOSIT, TokenFallbackData.decode(TokenFallbackData.deposit()).getMethod());
+        assertEquals(TokenFallbackData.SWAP_ICX, TokenFallbackData.decode(TokenFallbackData.swapIcx()).getMethod());
+    }
+}
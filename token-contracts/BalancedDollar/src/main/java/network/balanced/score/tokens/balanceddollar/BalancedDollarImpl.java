@@ -122,6 +122,7 @@ public class BalancedDollarImpl extends IRC2Burnable implements BalancedDollar {
     @External
     public void setMinInterval(BigInteger _interval) {
         only(admin);
+        Context.require(_interval.signum() >= 0, TOKEN_NAME + ": Interval cannot be negative.");
         minInterval.set(_interval);
     }
 
@@ -136,17 +137,33 @@ public class BalancedDollarImpl extends IRC2Burnable implements BalancedDollar {
     }
 
     /**
-     * @return the price of the asset in loop. Makes a call to the oracle if the last recorded price is not recent
-     * enough.
+     * @return the last recorded price of the asset in loop and the block timestamp it was recorded at, without calling
+     * the oracle.
+     */
+    @External(readonly = true)
+    public Map<String, Object> getPriceWithTimestamp() {
+        return Map.of(
+                "price", lastPrice.getOrDefault(BigInteger.ZERO),
+                "timestamp", getPriceUpdateTime()
+        );
+    }
+
+    /**
+     * @return the price of the asset in loop. Makes a call to the oracle if the last recorded price is older than the
+     * minimum interval, so every caller within that window, and at least within the same block, shares one oracle
+     * call.
      */
     @External
     public BigInteger priceInLoop() {
         BigInteger blockTimeStamp = BigInteger.valueOf(Context.getBlockTimestamp());
         BigInteger priceUpdate = getPriceUpdateTime();
-        BigInteger lastPriceOfBnusdInIcx = lastPrice.get();
-        if (blockTimeStamp.subtract(priceUpdate).compareTo(minInterval.get()) > 0) {
+        BigInteger lastPriceOfBnusdInIcx;
+        if (blockTimeStamp.subtract(priceUpdate).compareTo(minInterval.getOrDefault(BigInteger.ZERO)) > 0) {
             lastPriceOfBnusdInIcx = updateAssetValue();
+        } else {
+            lastPriceOfBnusdInIcx = lastPrice.get();
         }
+
         return lastPriceOfBnusdInIcx;
     }
 
@@ -38,6 +38,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 class BalancedDollarImplTest extends TestBase {
@@ -119,10 +120,44 @@ class BalancedDollarImplTest extends TestBase {
         verify(bnUSDSpy).OraclePrice("USDICX", "BandChain", oracleScore.getAddress(), newBnusdPrice);
         assertEquals(BigInteger.valueOf(sm.getBlock().getTimestamp()), bnUSDScore.call("getPriceUpdateTime"));
         assertEquals(newBnusdPrice, bnUSDScore.call("priceInLoop"));
+        assertEquals(Map.of("price", newBnusdPrice, "timestamp", BigInteger.valueOf(sm.getBlock().getTimestamp())),
+                bnUSDScore.call("getPriceWithTimestamp"));
 
         assertEquals(newBnusdPrice, bnUSDScore.call("lastPriceInLoop"));
     }
 
+    @Test
+    void priceInLoop_staleAfterMinInterval() {
+        setup();
+        BigInteger minInterval = BigInteger.valueOf(20_000_000);
+        bnUSDScore.invoke(admin, "setMinInterval", minInterval);
+        expectErrorMessage(() -> bnUSDScore.invoke(admin, "setMinInterval", BigInteger.ONE.negate()),
+                "Interval cannot be negative.");
+
+        BigInteger oldPrice = BigInteger.valueOf(120).multiply(BigInteger.TEN.pow(16));
+        BigInteger newPrice = BigInteger.valueOf(125).multiply(BigInteger.TEN.pow(16));
+        contextMock.when(() -> Context.call(any(Address.class), eq("get_reference_data"), eq("USD"), eq("ICX")))
+                .thenReturn(Map.of("rate", oldPrice));
+        bnUSDScore.invoke(owner, "priceInLoop");
+        BigInteger updateTime = BigInteger.valueOf(sm.getBlock().getTimestamp());
+
+        // Within the window the recorded price is used without calling the oracle
+        contextMock.when(() -> Context.call(any(Address.class), eq("get_reference_data"), eq("USD"), eq("ICX")))
+                .thenReturn(Map.of("rate", newPrice));
+        sm.getBlock().increase(2);
+        bnUSDScore.invoke(owner, "priceInLoop");
+        assertEquals(Map.of("price", oldPrice, "timestamp", updateTime), bnUSDScore.call("getPriceWithTimestamp"));
+        verify(bnUSDSpy, times(1)).OraclePrice(eq("USDICX"), eq("BandChain"), eq(oracleScore.getAddress()),
+                any(BigInteger.class));
+
+        // Past the window the price is refreshed from the oracle
+        sm.getBlock().increase(10);
+        bnUSDScore.invoke(owner, "priceInLoop");
+        assertEquals(Map.of("price", newPrice, "timestamp", BigInteger.valueOf(sm.getBlock().getTimestamp())),
+                bnUSDScore.call("getPriceWithTimestamp"));
+        verify(bnUSDSpy).OraclePrice("USDICX", "BandChain", oracleScore.getAddress(), newPrice);
+    }
+
     @Test
     void govTransfer() {
         setup();
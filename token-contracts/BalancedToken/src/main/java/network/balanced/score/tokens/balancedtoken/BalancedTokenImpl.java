@@ -18,18 +18,22 @@ package network.balanced.score.tokens.balancedtoken;
 
 import network.balanced.score.lib.interfaces.BalancedToken;
 import network.balanced.score.lib.tokens.IRC2Burnable;
+import network.balanced.score.tokens.balancedtoken.db.Checkpoint;
+import network.balanced.score.tokens.balancedtoken.db.StakingDetailDBSdo;
 import score.*;
 import score.annotation.EventLog;
 import score.annotation.External;
 import score.annotation.Optional;
+import scorex.util.ArrayList;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.Map;
 
 import static network.balanced.score.lib.utils.Check.*;
 import static network.balanced.score.lib.utils.Constants.EXA;
 import static network.balanced.score.lib.utils.Constants.MICRO_SECONDS_IN_A_DAY;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.FixedPoint.tenPow;
 import static network.balanced.score.tokens.balancedtoken.Constants.*;
 
 public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
@@ -45,15 +49,32 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
     private final VarDB<BigInteger> minInterval = Context.newVarDB(MIN_INTERVAL, BigInteger.class);
 
     private final VarDB<Boolean> stakingEnabled = Context.newVarDB(STAKING_ENABLED, Boolean.class);
+    // Per status balances of accounts that have not been migrated to the packed staking details below
     private final BranchDB<Address, DictDB<Integer, BigInteger>> stakedBalances = Context.newBranchDB(STAKED_BALANCES
             , BigInteger.class);
+    private final DictDB<Address, StakingDetailDBSdo> stakingDetails = Context.newDictDB(STAKING_DETAILS,
+            StakingDetailDBSdo.class);
+    // Once set, available balances are computed from the total, staked and unstaking balances and no longer stored
+    private final VarDB<Boolean> derivedAvailableBalance = Context.newVarDB(DERIVED_AVAILABLE_BALANCE,
+            Boolean.class);
+    // [address] = balance of an account when its staking details were last validated, and the sum of those balances
+    private final DictDB<Address, BigInteger> validatedBalances = Context.newDictDB(VALIDATED_BALANCES,
+            BigInteger.class);
+    private final VarDB<BigInteger> validatedSupply = Context.newVarDB(VALIDATED_SUPPLY, BigInteger.class);
     private final VarDB<BigInteger> minimumStake = Context.newVarDB(MINIMUM_STAKE, BigInteger.class);
     private final VarDB<BigInteger> unstakingPeriod = Context.newVarDB(UNSTAKING_PERIOD, BigInteger.class);
     private final VarDB<BigInteger> totalStakedBalance = Context.newVarDB(TOTAL_STAKED_BALANCE, BigInteger.class);
 
     private final VarDB<Address> dividendsScore = Context.newVarDB(DIVIDENDS_SCORE, Address.class);
+    // In pull mode stake increases are left for Dividends to pull, while decreases are still pushed right away
+    private final VarDB<Boolean> dividendsPullMode = Context.newVarDB(DIVIDENDS_PULL_MODE, Boolean.class);
+    // [address] = staked balance last accounted for by Dividends, only set while a stake change is pending
+    private final DictDB<Address, BigInteger> dividendsStake = Context.newDictDB(DIVIDENDS_STAKE, BigInteger.class);
+    // Total staked balance last accounted for by Dividends, only set while it differs from the total staked balance
+    private final VarDB<BigInteger> dividendsTotalStake = Context.newVarDB(DIVIDENDS_TOTAL_STAKE, BigInteger.class);
     private final VarDB<BigInteger> timeOffset = Context.newVarDB(TIME_OFFSET, BigInteger.class);
 
+    // Snapshots taken before the packed checkpoints below, read for indexes that have no packed checkpoint
     // [address][snapshot_id]["ids" || "amount"]
     private final BranchDB<Address, BranchDB<Integer, DictDB<String, BigInteger>>> stakeSnapshots =
             Context.newBranchDB(STAKE_SNAPSHOTS, BigInteger.class);
@@ -66,6 +87,17 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
     private final VarDB<Integer> totalStakedSnapshotCount = Context.newVarDB(TOTAL_STAKED_SNAPSHOT_COUNT,
             Integer.class);
 
+    // [address] = number of snapshots taken and the most recent snapshot
+    private final DictDB<Address, byte[]> latestStakeCheckpoint = Context.newDictDB(LATEST_STAKE_CHECKPOINT,
+            byte[].class);
+    // [address][snapshot_id] = every snapshot before the most recent one
+    private final BranchDB<Address, DictDB<Integer, byte[]>> stakeCheckpoints = Context.newBranchDB(STAKE_CHECKPOINTS,
+            byte[].class);
+    private final VarDB<byte[]> latestTotalStakedCheckpoint = Context.newVarDB(LATEST_TOTAL_STAKED_CHECKPOINT,
+            byte[].class);
+    private final DictDB<Integer, byte[]> totalStakedCheckpoints = Context.newDictDB(TOTAL_STAKED_CHECKPOINTS,
+            byte[].class);
+
     private final VarDB<Boolean> enableSnapshots = Context.newVarDB(ENABLE_SNAPSHOTS, Boolean.class);
     private final VarDB<Address> admin = Context.newVarDB(ADMIN, Address.class);
 
@@ -167,6 +199,51 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
         return this.dividendsScore.get();
     }
 
+    @External
+    public void setDividendsPullMode(boolean _enabled) {
+        only(governance);
+        this.dividendsPullMode.set(_enabled);
+        Context.call(dividendsScore.get(), "setBalnStakePullMode", _enabled);
+    }
+
+    @External(readonly = true)
+    public boolean getDividendsPullMode() {
+        return this.dividendsPullMode.getOrDefault(false);
+    }
+
+    /**
+     * Returns the staked balance of an account as last accounted for by Dividends.
+     **/
+    @External(readonly = true)
+    public BigInteger getDividendsStake(Address _account) {
+        BigInteger pendingStake = this.dividendsStake.get(_account);
+        if (pendingStake != null) {
+            return pendingStake;
+        }
+
+        return stakedBalanceOf(_account);
+    }
+
+    /**
+     * Pushes the pending stake changes of the given accounts to Dividends. Can be called by anyone, including
+     * Dividends itself when a user claims.
+     **/
+    @External
+    public void syncDividendsStake(Address[] _accounts) {
+        for (Address account : _accounts) {
+            BigInteger pendingStake = this.dividendsStake.get(account);
+            if (pendingStake == null) {
+                continue;
+            }
+
+            BigInteger totalStake = this.totalStakedBalance.getOrDefault(BigInteger.ZERO);
+            BigInteger pendingTotal = this.dividendsTotalStake.get();
+            BigInteger accountedTotal = pendingTotal != null ? pendingTotal : totalStake;
+            notifyDividends(account, pendingStake, stakedBalanceOf(account), accountedTotal, totalStake, true,
+                    pendingTotal != null);
+        }
+    }
+
     @External
     public void setOracleName(String _name) {
         only(governance);
@@ -181,6 +258,7 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
     @External
     public void setMinInterval(BigInteger _interval) {
         only(governance);
+        Context.require(_interval.signum() >= 0, TAG + ": Interval cannot be negative.");
         this.minInterval.set(_interval);
     }
 
@@ -195,18 +273,35 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
     }
 
     /**
-     * Returns the price of the asset in loop. Makes a call to the oracle if the last recorded price is not recent
-     * enough.
+     * Returns the last recorded price of the asset in loop and the block timestamp it was recorded at, without calling
+     * the oracle.
+     **/
+    @External(readonly = true)
+    public Map<String, Object> getPriceWithTimestamp() {
+        return Map.of(
+                "price", this.lastPrice.getOrDefault(BigInteger.ZERO),
+                "timestamp", this.priceUpdateTime.getOrDefault(BigInteger.ZERO)
+        );
+    }
+
+    /**
+     * Returns the price of the asset in loop. Makes a call to the oracle if the last recorded price is older than the
+     * minimum interval, so every caller within that window, and at least within the same block, shares one oracle
+     * call.
      **/
     @External
     public BigInteger priceInLoop() {
         BigInteger currentTime = BigInteger.valueOf(Context.getBlockTimestamp());
         BigInteger lastPriceUpdateTime = this.priceUpdateTime.getOrDefault(BigInteger.ZERO);
         BigInteger interval = this.minInterval.getOrDefault(BigInteger.ZERO);
+        BigInteger price;
         if (currentTime.subtract(lastPriceUpdateTime).compareTo(interval) > 0) {
-            this.updateAssetValue();
+            price = this.updateAssetValue();
+        } else {
+            price = this.lastPrice.get();
         }
-        return this.lastPrice.get();
+
+        return price;
     }
 
     /**
@@ -228,7 +323,7 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
     /**
      * Calls the oracle method for the asset and updates the asset value in loop.
      **/
-    private void updateAssetValue() {
+    private BigInteger updateAssetValue() {
         String base = "BALN";
         String quote = "ICX";
 
@@ -237,6 +332,7 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
         this.lastPrice.set(newPrice);
         this.priceUpdateTime.set(BigInteger.valueOf(Context.getBlockTimestamp()));
         this.OraclePrice(base + quote, this.oracleName.get(), dexScore.get(), newPrice);
+        return newPrice;
     }
 
     @External
@@ -244,7 +340,7 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
         only(governance);
         Context.require(_amount.compareTo(BigInteger.ZERO) >= 0, TAG + ": Amount cannot be less than zero.");
 
-        BigInteger totalAmount = _amount.multiply(pow(BigInteger.TEN, decimals().intValue()));
+        BigInteger totalAmount = _amount.multiply(tenPow(decimals().intValue()));
         this.minimumStake.set(totalAmount);
     }
 
@@ -290,6 +386,62 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
         return this.enableSnapshots.getOrDefault(false);
     }
 
+    /**
+     * Checks that the stored staking details of the given accounts add up to their balances and records those
+     * balances as validated. An account can be validated again after its balance changed, which replaces the balance
+     * it was validated with before.
+     **/
+    @External
+    public void validateAvailableBalances(Address[] _accounts) {
+        only(governance);
+        Context.require(!this.derivedAvailableBalance.getOrDefault(false), TAG + ": Available balance is already " +
+                "derived.");
+        Context.require(_accounts.length > 0, TAG + ": No accounts to validate.");
+        BigInteger validatedSupply = this.validatedSupply.getOrDefault(BigInteger.ZERO);
+        for (Address account : _accounts) {
+            StakingDetailDBSdo stakingDetail = getStakingDetail(account);
+            BigInteger balance = this.balanceOf(account);
+            BigInteger total = stakingDetail.getAvailable().add(stakingDetail.getStaked())
+                    .add(stakingDetail.getUnstaking());
+            Context.require(total.equals(balance), TAG + ": Staking details of " + account + " do not add up to " +
+                    "its balance.");
+            validatedSupply = validatedSupply.subtract(this.validatedBalances.getOrDefault(account, BigInteger.ZERO))
+                    .add(balance);
+            this.validatedBalances.set(account, balance);
+        }
+
+        this.validatedSupply.set(validatedSupply);
+    }
+
+    @External(readonly = true)
+    public BigInteger getValidatedSupply() {
+        return this.validatedSupply.getOrDefault(BigInteger.ZERO);
+    }
+
+    /**
+     * Switches to computing available balances as total balance minus staked and unstaking balances. Transfers,
+     * mints and burns then stop writing available balances. The switch is one way, as stored available balances are
+     * not maintained anymore once it is enabled, so it is refused until the balances validated through
+     * validateAvailableBalances cover the whole total supply.
+     **/
+    @External
+    public void enableDerivedAvailableBalance() {
+        only(governance);
+        Context.require(!this.derivedAvailableBalance.getOrDefault(false), TAG + ": Available balance is already " +
+                "derived.");
+        BigInteger validatedSupply = getValidatedSupply();
+        BigInteger totalSupply = this.totalSupply();
+        Context.require(validatedSupply.equals(totalSupply), TAG + ": Validated balances add up to " +
+                validatedSupply + " instead of the total supply of " + totalSupply + ".");
+
+        this.derivedAvailableBalance.set(true);
+    }
+
+    @External(readonly = true)
+    public boolean isAvailableBalanceDerived() {
+        return this.derivedAvailableBalance.getOrDefault(false);
+    }
+
     @External
     public void setTimeOffset() {
         onlyOwner();
@@ -316,42 +468,79 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
 
     @External(readonly = true)
     public Map<String, BigInteger> detailsBalanceOf(Address _owner) {
-        DictDB<Integer, BigInteger> stakingDetail = this.stakedBalances.at(_owner);
-        BigInteger unstakingTime = stakingDetail.getOrDefault(Status.UNSTAKING_PERIOD.code, BigInteger.ZERO);
-        BigInteger currUnstaked = stakingDetail.getOrDefault(Status.UNSTAKING.code, BigInteger.ZERO);
-        BigInteger availableBalance = stakingDetail.getOrDefault(Status.AVAILABLE.code, BigInteger.ZERO);
-        BigInteger stakedBalance = stakingDetail.getOrDefault(Status.STAKED.code, BigInteger.ZERO);
+        StakingDetailDBSdo stakingDetail = getStakingDetail(_owner);
+        BigInteger unstakingTime = stakingDetail.getUnstakingPeriod();
+        BigInteger currUnstaked = stakingDetail.getUnstaking();
 
         if (unstakingTime.compareTo(BigInteger.valueOf(Context.getBlockTimestamp())) >= 0) {
             currUnstaked = BigInteger.ZERO;
         }
 
-        BigInteger unstakingAmount =
-                stakingDetail.getOrDefault(Status.UNSTAKING.code, BigInteger.ZERO).subtract(currUnstaked);
+        BigInteger unstakingAmount = stakingDetail.getUnstaking().subtract(currUnstaked);
 
         if (unstakingAmount.equals(BigInteger.ZERO)) {
             unstakingTime = BigInteger.ZERO;
         }
 
-        if (this.firstTime(_owner)) {
-            availableBalance = this.balanceOf(_owner);
-        }
-
         return Map.of(
                 "Total balance", this.balanceOf(_owner),
-                "Available balance", availableBalance.add(currUnstaked),
-                "Staked balance", stakedBalance,
+                "Available balance", stakingDetail.getAvailable().max(BigInteger.ZERO).add(currUnstaked),
+                "Staked balance", stakingDetail.getStaked(),
                 "Unstaking balance", unstakingAmount,
                 "Unstaking time (in microseconds)", unstakingTime
         );
     }
 
-    private boolean firstTime(Address from) {
-        DictDB<Integer, BigInteger> stakingDetail = this.stakedBalances.at(from);
-        return (stakingDetail.getOrDefault(Status.AVAILABLE.code, BigInteger.ZERO).equals(BigInteger.ZERO)
-                && stakingDetail.getOrDefault(Status.STAKED.code, BigInteger.ZERO).equals(BigInteger.ZERO)
-                && stakingDetail.getOrDefault(Status.UNSTAKING.code, BigInteger.ZERO).equals(BigInteger.ZERO)
-                && !this.balanceOf(from).equals(BigInteger.ZERO));
+    /**
+     * Returns the staking detail of an account, read from the per status balances if the account has not been
+     * migrated yet. An account without any staking history has its whole balance available.
+     **/
+    private StakingDetailDBSdo getStakingDetail(Address account) {
+        boolean derived = this.derivedAvailableBalance.getOrDefault(false);
+        StakingDetailDBSdo stakingDetail = this.stakingDetails.get(account);
+        if (stakingDetail == null) {
+            DictDB<Integer, BigInteger> legacyDetail = this.stakedBalances.at(account);
+            stakingDetail = new StakingDetailDBSdo();
+            stakingDetail.setAvailable(BigInteger.ZERO);
+            stakingDetail.setStaked(legacyDetail.getOrDefault(Status.STAKED.code, BigInteger.ZERO));
+            stakingDetail.setUnstaking(legacyDetail.getOrDefault(Status.UNSTAKING.code, BigInteger.ZERO));
+            stakingDetail.setUnstakingPeriod(legacyDetail.getOrDefault(Status.UNSTAKING_PERIOD.code,
+                    BigInteger.ZERO));
+
+            if (!derived) {
+                stakingDetail.setAvailable(legacyDetail.getOrDefault(Status.AVAILABLE.code, BigInteger.ZERO));
+                // If first time copy the balance to available staked balances
+                if (stakingDetail.getAvailable().equals(BigInteger.ZERO)
+                        && stakingDetail.getStaked().equals(BigInteger.ZERO)
+                        && stakingDetail.getUnstaking().equals(BigInteger.ZERO)) {
+                    stakingDetail.setAvailable(this.balanceOf(account));
+                }
+            }
+        }
+
+        // Every balance change keeps total = available + staked + unstaking, so the available part follows from the
+        // other two. It is negative for an account whose staking details exceed its balance, which only the paths
+        // spending available balance refuse.
+        if (derived) {
+            stakingDetail.setAvailable(this.balanceOf(account).subtract(stakingDetail.getStaked())
+                    .subtract(stakingDetail.getUnstaking()));
+        }
+
+        return stakingDetail;
+    }
+
+    private void checkAvailableBalance(Address account, StakingDetailDBSdo stakingDetail) {
+        Context.require(stakingDetail.getAvailable().signum() >= 0, TAG + ": Staking details of " + account +
+                " exceed its balance.");
+    }
+
+    private BigInteger getStakedBalance(Address account) {
+        StakingDetailDBSdo stakingDetail = this.stakingDetails.get(account);
+        if (stakingDetail != null) {
+            return stakingDetail.getStaked();
+        }
+
+        return this.stakedBalances.at(account).getOrDefault(Status.STAKED.code, BigInteger.ZERO);
     }
 
     @External(readonly = true)
@@ -362,7 +551,7 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
 
     @External(readonly = true)
     public BigInteger stakedBalanceOf(Address _owner) {
-        return this.stakedBalances.at(_owner).getOrDefault(Status.STAKED.code, BigInteger.ZERO);
+        return getStakedBalance(_owner);
     }
 
     @External(readonly = true)
@@ -376,27 +565,23 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
         return this.totalStakedBalance.getOrDefault(BigInteger.ZERO);
     }
 
-    private void checkFirstTime(Address from) {
-        // If first time copy the balance to available staked balances
-        if (this.firstTime(from)) {
-            this.stakedBalances.at(from).set(Status.AVAILABLE.code, this.balanceOf(from));
-        }
-    }
-
     private void stakingEnabledOnly() {
         Context.require(stakingEnabled.getOrDefault(false), TAG + ": Staking must first be enabled.");
     }
 
-    private void makeAvailable(Address from) {
-        DictDB<Integer, BigInteger> stakingDetail = this.stakedBalances.at(from);
-
-        BigInteger unstakingTime = stakingDetail.getOrDefault(Status.UNSTAKING_PERIOD.code, BigInteger.ZERO);
+    /**
+     * Moves a matured unstaking amount to the available balance. Returns whether there was one to move.
+     **/
+    private boolean makeAvailable(StakingDetailDBSdo stakingDetail) {
+        BigInteger unstakingTime = stakingDetail.getUnstakingPeriod();
+        BigInteger currUnstaked = stakingDetail.getUnstaking();
         if (unstakingTime.compareTo(BigInteger.valueOf(Context.getBlockTimestamp())) <= 0) {
-            BigInteger currUnstaked = stakingDetail.getOrDefault(Status.UNSTAKING.code, BigInteger.ZERO);
-            stakingDetail.set(Status.UNSTAKING.code, null);
-            stakingDetail.set(Status.AVAILABLE.code, stakingDetail.getOrDefault(Status.AVAILABLE.code,
-                    BigInteger.ZERO).add(currUnstaked));
+            stakingDetail.setUnstaking(BigInteger.ZERO);
+            stakingDetail.setAvailable(stakingDetail.getAvailable().add(currUnstaked));
+            return currUnstaked.signum() > 0;
         }
+
+        return false;
     }
 
     @External
@@ -411,30 +596,31 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
                     "non zero");
         }
 
-        this.checkFirstTime(from);
-        this.makeAvailable(from);
+        StakingDetailDBSdo stakingDetail = getStakingDetail(from);
+        checkAvailableBalance(from, stakingDetail);
+        this.makeAvailable(stakingDetail);
 
-        DictDB<Integer, BigInteger> stakingDetail = this.stakedBalances.at(from);
-        BigInteger stakedAmount = stakingDetail.getOrDefault(Status.STAKED.code, BigInteger.ZERO);
+        BigInteger stakedAmount = stakingDetail.getStaked();
 
-        BigInteger oldStake = stakedAmount.add(stakingDetail.getOrDefault(Status.UNSTAKING.code, BigInteger.ZERO));
+        BigInteger oldStake = stakedAmount.add(stakingDetail.getUnstaking());
         BigInteger stakeIncrement = _value.subtract(stakedAmount);
         BigInteger unstakeAmount = BigInteger.ZERO;
 
         if (_value.compareTo(oldStake) > 0) {
             BigInteger offset = _value.subtract(oldStake);
-            stakingDetail.set(Status.AVAILABLE.code, stakingDetail.getOrDefault(Status.AVAILABLE.code,
-                    BigInteger.ZERO).subtract(offset));
+            stakingDetail.setAvailable(stakingDetail.getAvailable().subtract(offset));
         } else {
             unstakeAmount = oldStake.subtract(_value);
         }
 
-        stakingDetail.set(Status.STAKED.code, _value);
-        stakingDetail.set(Status.UNSTAKING.code, unstakeAmount);
-        stakingDetail.set(Status.UNSTAKING_PERIOD.code, BigInteger.valueOf(Context.getBlockTimestamp()).
+        stakingDetail.setStaked(_value);
+        stakingDetail.setUnstaking(unstakeAmount);
+        stakingDetail.setUnstakingPeriod(BigInteger.valueOf(Context.getBlockTimestamp()).
                 add(this.unstakingPeriod.getOrDefault(BigInteger.ZERO)));
+        this.stakingDetails.set(from, stakingDetail);
 
-        BigInteger newTotal = this.totalStakedBalance.getOrDefault(BigInteger.ZERO).add(stakeIncrement);
+        BigInteger oldTotal = this.totalStakedBalance.getOrDefault(BigInteger.ZERO);
+        BigInteger newTotal = oldTotal.add(stakeIncrement);
         this.totalStakedBalance.set(newTotal);
 
         if (this.enableSnapshots.getOrDefault(false)) {
@@ -442,30 +628,118 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
             this.updateTotalStakedSnapshot(newTotal);
         }
 
-        Context.call(dividendsScore.get(), "updateBalnStake", from, stakedAmount, newTotal);
+        updateDividendsStake(from, stakedAmount, _value, oldTotal, newTotal);
+    }
+
+    /**
+     * Pushes a stake change to Dividends or, in pull mode, leaves a stake increase pending. A stake that drops below
+     * what Dividends has accounted for is always pushed, so that no account earns dividends on BALN it no longer
+     * stakes.
+     **/
+    private void updateDividendsStake(Address account, BigInteger prevStake, BigInteger stake, BigInteger prevTotal,
+                                      BigInteger total) {
+        BigInteger pendingStake = this.dividendsStake.get(account);
+        BigInteger pendingTotal = this.dividendsTotalStake.get();
+        BigInteger accountedStake = pendingStake != null ? pendingStake : prevStake;
+        BigInteger accountedTotal = pendingTotal != null ? pendingTotal : prevTotal;
+
+        if (this.dividendsPullMode.getOrDefault(false) && stake.compareTo(accountedStake) >= 0) {
+            if (pendingStake == null) {
+                this.dividendsStake.set(account, accountedStake);
+            }
+            if (pendingTotal == null) {
+                this.dividendsTotalStake.set(accountedTotal);
+            }
+            return;
+        }
+
+        notifyDividends(account, accountedStake, stake, accountedTotal, total, pendingStake != null,
+                pendingTotal != null);
+    }
+
+    private void notifyDividends(Address account, BigInteger accountedStake, BigInteger stake,
+                                 BigInteger accountedTotal, BigInteger total, boolean stakePending,
+                                 boolean totalPending) {
+        BigInteger newAccountedTotal = accountedTotal.subtract(accountedStake).add(stake);
+        if (stakePending) {
+            this.dividendsStake.set(account, null);
+        }
+        BigInteger pendingTotal = newAccountedTotal.equals(total) ? null : newAccountedTotal;
+        if (totalPending || pendingTotal != null) {
+            this.dividendsTotalStake.set(pendingTotal);
+        }
+
+        Context.call(dividendsScore.get(), "updateBalnStake", account, accountedStake, newAccountedTotal);
     }
 
     @Override
     @External
     public void transfer(Address _to, BigInteger _value, @Optional byte[] _data) {
         Address from = Context.getCaller();
-        this.checkFirstTime(from);
-        this.checkFirstTime(_to);
-        this.makeAvailable(from);
-        this.makeAvailable(_to);
+        moveAvailableBalance(from, _to, _value);
+        super.transfer(from, _to, _value, _data);
+    }
 
-        DictDB<Integer, BigInteger> stakingDetailOfSender = this.stakedBalances.at(from);
-        BigInteger availableAmountOfSender = stakingDetailOfSender.getOrDefault(Status.AVAILABLE.code, BigInteger.ZERO);
+    @Override
+    @External
+    public void transferFrom(Address _from, Address _to, BigInteger _value, @Optional byte[] _data) {
+        spendAllowance(_from, Context.getCaller(), _value);
+        moveAvailableBalance(_from, _to, _value);
+        super.transfer(_from, _to, _value, _data);
+    }
 
-        Context.require(availableAmountOfSender.compareTo(_value) >= 0, TAG + ": Out of available balance. Please " +
-                "check staked and total balance.");
+    private void moveAvailableBalance(Address from, Address to, BigInteger value) {
+        debitAvailableBalance(from, value);
+        // Credited after the sender is written so that a transfer to oneself sees the debited balance
+        creditAvailableBalance(to, value);
+    }
 
-        stakingDetailOfSender.set(Status.AVAILABLE.code, availableAmountOfSender.subtract(_value));
-        DictDB<Integer, BigInteger> stakingDetailOfReceiver = this.stakedBalances.at(_to);
-        stakingDetailOfReceiver.set(Status.AVAILABLE.code, stakingDetailOfReceiver.getOrDefault(Status.AVAILABLE.code
-                , BigInteger.ZERO).add(_value));
+    private void debitAvailableBalance(Address account, BigInteger value) {
+        StakingDetailDBSdo stakingDetail = getStakingDetail(account);
+        checkAvailableBalance(account, stakingDetail);
+        boolean matured = this.makeAvailable(stakingDetail);
+        BigInteger availableBalance = stakingDetail.getAvailable();
 
-        super.transfer(_to, _value, _data);
+        Context.require(availableBalance.compareTo(value) >= 0, TAG + ": Out of available balance. Please check " +
+                "staked and total balance.");
+
+        if (!this.derivedAvailableBalance.getOrDefault(false)) {
+            stakingDetail.setAvailable(availableBalance.subtract(value));
+            this.stakingDetails.set(account, stakingDetail);
+        } else if (matured) {
+            // Only the unstaking part is read back in derived mode, so a matured amount has to be cleared in storage
+            this.stakingDetails.set(account, stakingDetail);
+        }
+    }
+
+    private void creditAvailableBalance(Address account, BigInteger value) {
+        if (this.derivedAvailableBalance.getOrDefault(false)) {
+            return;
+        }
+
+        StakingDetailDBSdo stakingDetail = getStakingDetail(account);
+        this.makeAvailable(stakingDetail);
+        stakingDetail.setAvailable(stakingDetail.getAvailable().add(value));
+        this.stakingDetails.set(account, stakingDetail);
+    }
+
+    @Override
+    @External
+    public void batchTransfer(Address[] _to, BigInteger[] _values, @Optional byte[] _data) {
+        Address from = Context.getCaller();
+        Context.require(_to.length == _values.length, TAG + ": Recipients and values must have the same length.");
+        BigInteger total = BigInteger.ZERO;
+        for (BigInteger value : _values) {
+            Context.require(value.signum() >= 0, TAG + ": Transferring value cannot be less than 0.");
+            total = total.add(value);
+        }
+
+        debitAvailableBalance(from, total);
+        for (int i = 0; i < _to.length; i++) {
+            creditAvailableBalance(_to[i], _values[i]);
+        }
+
+        super.batchTransfer(from, _to, _values, _data);
     }
 
     @Override
@@ -478,12 +752,7 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
     @Override
     @External
     public void mintTo(Address _account, BigInteger _amount, @Optional byte[] _data) {
-        this.checkFirstTime(_account);
-        this.makeAvailable(_account);
-        DictDB<Integer, BigInteger> stakingDetailOfReceiver = this.stakedBalances.at(_account);
-        stakingDetailOfReceiver.set(Status.AVAILABLE.code, stakingDetailOfReceiver.getOrDefault(Status.AVAILABLE.code
-                , BigInteger.ZERO).add(_amount));
-
+        creditAvailableBalance(_account, _amount);
         super.mintTo(_account, _amount, _data);
     }
 
@@ -497,16 +766,7 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
     @Override
     @External
     public void burnFrom(Address _account, BigInteger _amount) {
-        this.checkFirstTime(_account);
-        this.makeAvailable(_account);
-
-        DictDB<Integer, BigInteger> stakingDetail = this.stakedBalances.at(_account);
-        BigInteger availableBalance = stakingDetail.getOrDefault(Status.AVAILABLE.code, BigInteger.ZERO);
-
-        Context.require(availableBalance.compareTo(_amount) >= 0, TAG + ": Out of available balance. Please check " +
-                "staked and total balance.");
-        stakingDetail.set(Status.AVAILABLE.code, availableBalance.subtract(_amount));
-
+        debitAvailableBalance(_account, _amount);
         super.burnFrom(_account, _amount);
     }
 
@@ -520,17 +780,9 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
         }
 
         BigInteger currentId = this.getDay();
-        int totalSnapshotsTaken = this.totalSnapshots.getOrDefault(account, 0);
-
-        BranchDB<Integer, DictDB<String, BigInteger>> stakeSnapshots = this.stakeSnapshots.at(account);
-        if (totalSnapshotsTaken > 0 && stakeSnapshots.at(totalSnapshotsTaken - 1).getOrDefault(IDS, BigInteger.ZERO)
-                .equals(currentId)) {
-            stakeSnapshots.at(totalSnapshotsTaken - 1).set(AMOUNT, amount);
-        } else {
-            stakeSnapshots.at(totalSnapshotsTaken).set(IDS, currentId);
-            stakeSnapshots.at(totalSnapshotsTaken).set(AMOUNT, amount);
-            this.totalSnapshots.set(account, totalSnapshotsTaken + 1);
-        }
+        Checkpoint latest = getLatestStakeCheckpoint(account);
+        this.latestStakeCheckpoint.set(account, updateCheckpoint(latest, currentId, amount,
+                this.stakeCheckpoints.at(account)));
     }
 
     private void updateTotalStakedSnapshot(BigInteger amount) {
@@ -540,16 +792,65 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
         }
 
         BigInteger currentId = this.getDay();
-        int totalSnapshotsTaken = this.totalStakedSnapshotCount.getOrDefault(0);
+        Checkpoint latest = getLatestTotalStakedCheckpoint();
+        this.latestTotalStakedCheckpoint.set(updateCheckpoint(latest, currentId, amount, this.totalStakedCheckpoints));
+    }
 
-        if (totalSnapshotsTaken > 0 && this.totalStakedSnapshot.at(totalSnapshotsTaken - 1).getOrDefault(IDS,
-                BigInteger.ZERO).equals(currentId)) {
-            this.totalStakedSnapshot.at(totalSnapshotsTaken - 1).set(AMOUNT, amount);
-        } else {
-            this.totalStakedSnapshot.at(totalSnapshotsTaken).set(IDS, currentId);
-            this.totalStakedSnapshot.at(totalSnapshotsTaken).set(AMOUNT, amount);
-            this.totalStakedSnapshotCount.set(totalSnapshotsTaken + 1);
+    /**
+     * Records the amount for the given day in the latest checkpoint, moving the previous latest checkpoint to the
+     * history if it belongs to an earlier day. Returns the encoded new latest checkpoint.
+     **/
+    private byte[] updateCheckpoint(Checkpoint latest, BigInteger day, BigInteger amount,
+                                    DictDB<Integer, byte[]> history) {
+        if (latest.count > 0 && latest.day.equals(day)) {
+            return Checkpoint.encodeLatest(latest.count, day, amount);
+        }
+
+        if (latest.count > 0) {
+            history.set(latest.count - 1, Checkpoint.encode(latest.day, latest.amount));
         }
+        return Checkpoint.encodeLatest(latest.count + 1, day, amount);
+    }
+
+    private Checkpoint getLatestStakeCheckpoint(Address account) {
+        byte[] latest = this.latestStakeCheckpoint.get(account);
+        if (latest != null) {
+            return Checkpoint.decodeLatest(latest);
+        }
+
+        return getLegacyLatestCheckpoint(this.totalSnapshots.getOrDefault(account, 0), this.stakeSnapshots.at(account));
+    }
+
+    private Checkpoint getLatestTotalStakedCheckpoint() {
+        byte[] latest = this.latestTotalStakedCheckpoint.get();
+        if (latest != null) {
+            return Checkpoint.decodeLatest(latest);
+        }
+
+        return getLegacyLatestCheckpoint(this.totalStakedSnapshotCount.getOrDefault(0), this.totalStakedSnapshot);
+    }
+
+    private Checkpoint getLegacyLatestCheckpoint(int totalSnapshotsTaken,
+                                                 BranchDB<Integer, DictDB<String, BigInteger>> legacySnapshots) {
+        if (totalSnapshotsTaken == 0) {
+            return Checkpoint.EMPTY;
+        }
+
+        DictDB<String, BigInteger> snapshot = legacySnapshots.at(totalSnapshotsTaken - 1);
+        return new Checkpoint(totalSnapshotsTaken, snapshot.getOrDefault(IDS, BigInteger.ZERO),
+                snapshot.getOrDefault(AMOUNT, BigInteger.ZERO));
+    }
+
+    private Checkpoint getCheckpoint(int index, DictDB<Integer, byte[]> history,
+                                     BranchDB<Integer, DictDB<String, BigInteger>> legacySnapshots) {
+        byte[] checkpoint = history.get(index);
+        if (checkpoint != null) {
+            return Checkpoint.decode(checkpoint);
+        }
+
+        DictDB<String, BigInteger> snapshot = legacySnapshots.at(index);
+        return new Checkpoint(0, snapshot.getOrDefault(IDS, BigInteger.ZERO), snapshot.getOrDefault(AMOUNT,
+                BigInteger.ZERO));
     }
 
     @External(readonly = true)
@@ -559,40 +860,64 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
             Context.revert(TAG + ": Asked _day is greater than current day");
         }
 
-        int totalSnapshotsTaken = this.totalSnapshots.getOrDefault(_account, 0);
-        if (totalSnapshotsTaken == 0) {
-            return BigInteger.ZERO;
+        return stakedBalanceAt(_account, _day);
+    }
+
+    @External(readonly = true)
+    public List<BigInteger> stakedBalancesOfAt(Address[] _accounts, BigInteger _day) {
+        BigInteger currentDay = this.getDay();
+        if (_day.compareTo(currentDay) > 0) {
+            Context.revert(TAG + ": Asked _day is greater than current day");
         }
 
-        BranchDB<Integer, DictDB<String, BigInteger>> stakeSnapshotDetail = this.stakeSnapshots.at(_account);
-        if (stakeSnapshotDetail.at(totalSnapshotsTaken - 1).getOrDefault(IDS, BigInteger.ZERO).compareTo(_day) <= 0) {
-            return stakeSnapshotDetail.at(totalSnapshotsTaken - 1).getOrDefault(AMOUNT, BigInteger.ZERO);
+        List<BigInteger> stakedBalances = new ArrayList<>();
+        for (Address account : _accounts) {
+            stakedBalances.add(stakedBalanceAt(account, _day));
         }
 
-        return getSnapshotAmount(_day, totalSnapshotsTaken, stakeSnapshotDetail);
+        return stakedBalances;
+    }
+
+    private BigInteger stakedBalanceAt(Address _account, BigInteger _day) {
+        return getSnapshotAmount(_day, getLatestStakeCheckpoint(_account), this.stakeCheckpoints.at(_account),
+                this.stakeSnapshots.at(_account));
     }
 
-    private BigInteger getSnapshotAmount(BigInteger _day, int totalSnapshotsTaken, BranchDB<Integer, DictDB<String,
-            BigInteger>> stakeSnapshotDetail) {
-        if (stakeSnapshotDetail.at(0).getOrDefault(IDS, BigInteger.ZERO).compareTo(_day) > 0) {
+    private BigInteger getSnapshotAmount(BigInteger _day, Checkpoint latest, DictDB<Integer, byte[]> history,
+                                         BranchDB<Integer, DictDB<String, BigInteger>> legacySnapshots) {
+        if (latest.count == 0) {
+            return BigInteger.ZERO;
+        }
+
+        if (latest.day.compareTo(_day) <= 0) {
+            return latest.amount;
+        }
+
+        if (latest.count == 1) {
+            return BigInteger.ZERO;
+        }
+
+        Checkpoint lowValue = getCheckpoint(0, history, legacySnapshots);
+        if (lowValue.day.compareTo(_day) > 0) {
             return BigInteger.ZERO;
         }
 
         int low = 0;
-        int high = totalSnapshotsTaken - 1;
+        int high = latest.count - 2;
         while (high > low) {
             int mid = high - (high - low) / 2;
-            DictDB<String, BigInteger> midValue = stakeSnapshotDetail.at(mid);
-            if (midValue.getOrDefault(IDS, BigInteger.ZERO).equals(_day)) {
-                return midValue.getOrDefault(AMOUNT, BigInteger.ZERO);
-            } else if (midValue.getOrDefault(IDS, BigInteger.ZERO).compareTo(_day) < 0) {
+            Checkpoint midValue = getCheckpoint(mid, history, legacySnapshots);
+            if (midValue.day.equals(_day)) {
+                return midValue.amount;
+            } else if (midValue.day.compareTo(_day) < 0) {
                 low = mid;
+                lowValue = midValue;
             } else {
                 high = mid - 1;
             }
         }
 
-        return stakeSnapshotDetail.at(low).getOrDefault(AMOUNT, BigInteger.ZERO);
+        return lowValue.amount;
     }
 
     @External(readonly = true)
@@ -602,17 +927,7 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
             Context.revert(TAG + ": Asked _day is greater than current day");
         }
 
-        int totalSnapshotsTaken = this.totalStakedSnapshotCount.getOrDefault(0);
-        if (totalSnapshotsTaken == 0) {
-            return BigInteger.ZERO;
-        }
-
-        BranchDB<Integer, DictDB<String, BigInteger>> totalStakedSnapshot = this.totalStakedSnapshot;
-        BigInteger id = totalStakedSnapshot.at(totalSnapshotsTaken - 1).getOrDefault(IDS, BigInteger.ZERO);
-        if (id.compareTo(_day) <= 0) {
-            return totalStakedSnapshot.at(totalSnapshotsTaken - 1).getOrDefault(AMOUNT, BigInteger.ZERO);
-        }
-
-        return getSnapshotAmount(_day, totalSnapshotsTaken, totalStakedSnapshot);
+        return getSnapshotAmount(_day, getLatestTotalStakedCheckpoint(), this.totalStakedCheckpoints,
+                this.totalStakedSnapshot);
     }
 }
@@ -43,11 +43,18 @@ public interface Constants {
 	String STAKING_ENABLED = "staking_enabled";
 
 	String STAKED_BALANCES = "staked_balances";
+	String STAKING_DETAILS = "staking_details";
+	String DERIVED_AVAILABLE_BALANCE = "derived_available_balance";
+	String VALIDATED_BALANCES = "validated_balances";
+	String VALIDATED_SUPPLY = "validated_supply";
 	String MINIMUM_STAKE = "minimum_stake";
 	String UNSTAKING_PERIOD = "unstaking_period";
 	String TOTAL_STAKED_BALANCE = "total_staked_balance";
 
 	String DIVIDENDS_SCORE = "dividends_score";
+	String DIVIDENDS_PULL_MODE = "dividends_pull_mode";
+	String DIVIDENDS_STAKE = "dividends_stake";
+	String DIVIDENDS_TOTAL_STAKE = "dividends_total_stake";
 	String GOVERNANCE = "governance";
 
 	String DEX_SCORE = "dex_score";
@@ -60,6 +67,10 @@ public interface Constants {
 	String TOTAL_SNAPSHOTS = "total_snapshots";
 	String TOTAL_STAKED_SNAPSHOT = "total_staked_snapshot";
 	String TOTAL_STAKED_SNAPSHOT_COUNT = "total_staked_snapshot_count";
+	String LATEST_STAKE_CHECKPOINT = "latest_stake_checkpoint";
+	String STAKE_CHECKPOINTS = "stake_checkpoints";
+	String LATEST_TOTAL_STAKED_CHECKPOINT = "latest_total_staked_checkpoint";
+	String TOTAL_STAKED_CHECKPOINTS = "total_staked_checkpoints";
 
 	String ENABLE_SNAPSHOTS = "enable_snapshots";
 	String ADMIN = "admin_address";
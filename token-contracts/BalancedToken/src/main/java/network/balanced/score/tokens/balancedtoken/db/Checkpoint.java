@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.tokens.balancedtoken.db;
+
+import java.math.BigInteger;
+
+/**
+ * A staked balance snapshot taken on a day, stored as fixed width bytes: an 8 byte day followed by a 32 byte unsigned
+ * amount. The latest snapshot of a series is prefixed with the 4 byte number of snapshots in the series.
+ */
+public class Checkpoint {
+    private static final int COUNT_SIZE = 4;
+    private static final int DAY_SIZE = 8;
+    private static final int AMOUNT_SIZE = 32;
+    private static final int ENTRY_SIZE = DAY_SIZE + AMOUNT_SIZE;
+
+    public static final Checkpoint EMPTY = new Checkpoint(0, BigInteger.ZERO, BigInteger.ZERO);
+
+    public final int count;
+    public final BigInteger day;
+    public final BigInteger amount;
+
+    public Checkpoint(int count, BigInteger day, BigInteger amount) {
+        this.count = count;
+        this.day = day;
+        this.amount = amount;
+    }
+
+    public static byte[] encode(BigInteger day, BigInteger amount) {
+        byte[] entry = new byte[ENTRY_SIZE];
+        writeEntry(entry, 0, day, amount);
+        return entry;
+    }
+
+    public static Checkpoint decode(byte[] entry) {
+        return readEntry(entry, 0, 0);
+    }
+
+    public static byte[] encodeLatest(int count, BigInteger day, BigInteger amount) {
+        byte[] latest = new byte[COUNT_SIZE + ENTRY_SIZE];
+        for (int i = 0; i < COUNT_SIZE; i++) {
+            latest[i] = (byte) (count >>> (8 * (COUNT_SIZE - 1 - i)));
+        }
+        writeEntry(latest, COUNT_SIZE, day, amount);
+        return latest;
+    }
+
+    public static Checkpoint decodeLatest(byte[] latest) {
+        int count = 0;
+        for (int i = 0; i < COUNT_SIZE; i++) {
+            count = (count << 8) | (latest[i] & 0xff);
+        }
+        return readEntry(latest, COUNT_SIZE, count);
+    }
+
+    private static void writeEntry(byte[] bytes, int offset, BigInteger day, BigInteger amount) {
+        long dayValue = day.longValue();
+        for (int i = 0; i < DAY_SIZE; i++) {
+            bytes[offset + i] = (byte) (dayValue >>> (8 * (DAY_SIZE - 1 - i)));
+        }
+
+        byte[] amountBytes = amount.toByteArray();
+        int length = Math.min(amountBytes.length, AMOUNT_SIZE);
+        System.arraycopy(amountBytes, amountBytes.length - length, bytes, offset + ENTRY_SIZE - length, length);
+    }
+
+    private static Checkpoint readEntry(byte[] bytes, int offset, int count) {
+        long dayValue = 0;
+        for (int i = 0; i < DAY_SIZE; i++) {
+            dayValue = (dayValue << 8) | (bytes[offset + i] & 0xff);
+        }
+
+        byte[] amountBytes = new byte[AMOUNT_SIZE];
+        System.arraycopy(bytes, offset + DAY_SIZE, amountBytes, 0, AMOUNT_SIZE);
+        return new Checkpoint(count, BigInteger.valueOf(dayValue), new BigInteger(1, amountBytes));
+    }
+}
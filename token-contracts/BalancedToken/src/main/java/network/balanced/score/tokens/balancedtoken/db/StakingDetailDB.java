@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.tokens.balancedtoken.db;
+
+import foundation.icon.score.data.ScoreDataObject;
+
+import java.math.BigInteger;
+
+/**
+ * Available, staked and unstaking balances of an account together with the end of its unstaking period, stored in a
+ * single entry. An account that has a record has been migrated from the per status staked balances.
+ */
+@ScoreDataObject
+public class StakingDetailDB {
+    private BigInteger available;
+    private BigInteger staked;
+    private BigInteger unstaking;
+    private BigInteger unstakingPeriod;
+
+    public BigInteger getAvailable() {
+        return available;
+    }
+
+    public void setAvailable(BigInteger available) {
+        this.available = available;
+    }
+
+    public BigInteger getStaked() {
+        return staked;
+    }
+
+    public void setStaked(BigInteger staked) {
+        this.staked = staked;
+    }
+
+    public BigInteger getUnstaking() {
+        return unstaking;
+    }
+
+    public void setUnstaking(BigInteger unstaking) {
+        this.unstaking = unstaking;
+    }
+
+    public BigInteger getUnstakingPeriod() {
+        return unstakingPeriod;
+    }
+
+    public void setUnstakingPeriod(BigInteger unstakingPeriod) {
+        this.unstakingPeriod = unstakingPeriod;
+    }
+
+    @Override
+    public String toString() {
+        return "StakingDetailDB{" + "available=" + available + ", staked=" + staked + ", unstaking=" + unstaking +
+                ", unstakingPeriod=" + unstakingPeriod + "}";
+    }
+}
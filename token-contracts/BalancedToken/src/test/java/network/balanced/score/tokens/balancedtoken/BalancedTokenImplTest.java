@@ -27,9 +27,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import score.Address;
+import score.BranchDB;
 import score.Context;
+import score.DictDB;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.Map;
 
 import static java.math.BigInteger.*;
@@ -37,8 +40,10 @@ import static network.balanced.score.lib.test.UnitTest.*;
 import static network.balanced.score.lib.utils.Constants.MICRO_SECONDS_IN_A_DAY;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 class BalancedTokenImplTest extends TestBase {
@@ -159,10 +164,47 @@ class BalancedTokenImplTest extends TestBase {
 		verify(balancedTokenSpy).OraclePrice("BALNICX", "Balanced DEX", dexScore.getAddress(), newBalnPriceInIcx);
 		assertEquals(BigInteger.valueOf(sm.getBlock().getTimestamp()), balancedToken.call("getPriceUpdateTime"));
 		assertEquals(newBalnPriceInIcx, balancedToken.call("priceInLoop"));
+		assertEquals(Map.of("price", newBalnPriceInIcx, "timestamp", BigInteger.valueOf(sm.getBlock().getTimestamp())),
+				balancedToken.call("getPriceWithTimestamp"));
 
 		assertEquals(newBalnPriceInIcx, balancedToken.call("lastPriceInLoop"));
 	}
 
+	@Test
+	void priceInLoop_staleAfterMinInterval() {
+		setup();
+		BigInteger minInterval = BigInteger.valueOf(20_000_000);
+		balancedToken.invoke(governance, "setMinInterval", minInterval);
+		expectErrorMessage(() -> balancedToken.invoke(governance, "setMinInterval", ONE.negate()),
+				"Interval cannot be negative.");
+
+		BigInteger usdPriceInIcx = BigInteger.valueOf(120).multiply(BigInteger.TEN.pow(16));
+		BigInteger oldBalnPriceInUsd = BigInteger.valueOf(250).multiply(BigInteger.TEN.pow(16));
+		BigInteger newBalnPriceInUsd = BigInteger.valueOf(260).multiply(BigInteger.TEN.pow(16));
+		BigInteger oldPrice = oldBalnPriceInUsd.multiply(usdPriceInIcx).divide(ICX);
+		BigInteger newPrice = newBalnPriceInUsd.multiply(usdPriceInIcx).divide(ICX);
+		contextMock.when(() -> Context.call(eq(oracleScore.getAddress()), eq("get_reference_data"), eq("USD"), eq("ICX"
+		))).thenReturn(Map.of("rate", usdPriceInIcx));
+		contextMock.when(() -> Context.call(BigInteger.class, dexScore.getAddress(), "getBalnPrice")).thenReturn(oldBalnPriceInUsd);
+		balancedToken.invoke(owner, "priceInLoop");
+		BigInteger updateTime = BigInteger.valueOf(sm.getBlock().getTimestamp());
+
+		// Within the window the recorded price is used without calling the oracle
+		contextMock.when(() -> Context.call(BigInteger.class, dexScore.getAddress(), "getBalnPrice")).thenReturn(newBalnPriceInUsd);
+		sm.getBlock().increase(2);
+		balancedToken.invoke(owner, "priceInLoop");
+		assertEquals(Map.of("price", oldPrice, "timestamp", updateTime), balancedToken.call("getPriceWithTimestamp"));
+		verify(balancedTokenSpy, times(1)).OraclePrice(eq("BALNICX"), eq("Balanced DEX"), eq(dexScore.getAddress()),
+				any(BigInteger.class));
+
+		// Past the window the price is refreshed from the oracle
+		sm.getBlock().increase(10);
+		balancedToken.invoke(owner, "priceInLoop");
+		assertEquals(Map.of("price", newPrice, "timestamp", BigInteger.valueOf(sm.getBlock().getTimestamp())),
+				balancedToken.call("getPriceWithTimestamp"));
+		verify(balancedTokenSpy).OraclePrice("BALNICX", "Balanced DEX", dexScore.getAddress(), newPrice);
+	}
+
 	@Test
 	void setAndGetMinimumStake() {
 		BigInteger minStake = (BigInteger) balancedToken.call("getMinimumStake");
@@ -320,6 +362,217 @@ class BalancedTokenImplTest extends TestBase {
 
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	void ShouldTransferToSelf() {
+		balancedToken.invoke(governance, "setAdmin", adminAccount.getAddress());
+		balancedToken.invoke(governance, "setDividends", dividendsScore.getAddress());
+		balancedToken.invoke(owner, "setMinter", adminAccount.getAddress());
+
+		BigInteger amountToMint = BigInteger.valueOf(10000L).multiply(ICX);
+		balancedToken.invoke(adminAccount, "mint", amountToMint, "init gold".getBytes());
+
+		balancedToken.invoke(governance, "toggleStakingEnabled");
+		BigInteger stakedAmount = amountToMint.divide(TWO);
+		balancedToken.invoke(governance, "setDex", mockDexScore.getAddress());
+		contextMock.when(() -> Context.call(BigInteger.class, mockDexScore.getAddress(), "getTimeOffset")).thenReturn(BigInteger.valueOf(500));
+		balancedToken.invoke(owner, "setTimeOffset");
+		mockUpdateBalnStake(adminAccount.getAddress(), BigInteger.ZERO, stakedAmount);
+		balancedToken.invoke(adminAccount, "stake", stakedAmount);
+
+		BigInteger amountToTransfer = stakedAmount.divide(TWO);
+		balancedToken.invoke(adminAccount, "transfer", adminAccount.getAddress(), amountToTransfer, new byte[0]);
+
+		Map<String, BigInteger> balanceDetails = (Map<String, BigInteger>) balancedToken.call("detailsBalanceOf",
+				adminAccount.getAddress());
+		assertEquals(amountToMint, balanceDetails.get("Total balance"));
+		assertEquals(amountToMint.subtract(stakedAmount), balanceDetails.get("Available balance"));
+		assertEquals(stakedAmount, balanceDetails.get("Staked balance"));
+	}
+
+	@Test
+	void ShouldTransferFromWithAllowance() {
+		balancedToken.invoke(governance, "setAdmin", adminAccount.getAddress());
+		balancedToken.invoke(owner, "setMinter", adminAccount.getAddress());
+
+		BigInteger amountToMint = BigInteger.valueOf(10000L).multiply(ICX);
+		balancedToken.invoke(adminAccount, "mint", amountToMint, "init gold".getBytes());
+
+		Account spender = sm.createAccount();
+		Account receiver = sm.createAccount();
+		BigInteger amountToTransfer = BigInteger.valueOf(100L).multiply(ICX);
+		balancedToken.invoke(adminAccount, "approve", spender.getAddress(), amountToTransfer);
+		balancedToken.invoke(spender, "transferFrom", adminAccount.getAddress(), receiver.getAddress(),
+				amountToTransfer, new byte[0]);
+
+		assertEquals(amountToMint.subtract(amountToTransfer),
+				balancedToken.call("availableBalanceOf", adminAccount.getAddress()));
+		assertEquals(amountToTransfer, balancedToken.call("availableBalanceOf", receiver.getAddress()));
+		assertEquals(ZERO, balancedToken.call("allowance", adminAccount.getAddress(), spender.getAddress()));
+
+		expectErrorMessage(() -> balancedToken.invoke(spender, "transferFrom", adminAccount.getAddress(),
+				receiver.getAddress(), ONE, new byte[0]), "Insufficient allowance");
+	}
+
+	@Test
+	void ShouldBatchTransfer() {
+		balancedToken.invoke(governance, "setAdmin", adminAccount.getAddress());
+		balancedToken.invoke(owner, "setMinter", adminAccount.getAddress());
+
+		BigInteger amountToMint = BigInteger.valueOf(10000L).multiply(ICX);
+		balancedToken.invoke(adminAccount, "mint", amountToMint, "init gold".getBytes());
+
+		Account alice = sm.createAccount();
+		Account bob = sm.createAccount();
+		BigInteger amountToTransfer = BigInteger.valueOf(100L).multiply(ICX);
+		Address[] recipients = new Address[]{alice.getAddress(), bob.getAddress()};
+		BigInteger[] values = new BigInteger[]{amountToTransfer, amountToTransfer.multiply(TWO)};
+		balancedToken.invoke(adminAccount, "batchTransfer", recipients, values, new byte[0]);
+
+		BigInteger remaining = amountToMint.subtract(amountToTransfer.multiply(BigInteger.valueOf(3)));
+		assertEquals(remaining, balancedToken.call("balanceOf", adminAccount.getAddress()));
+		assertEquals(remaining, balancedToken.call("availableBalanceOf", adminAccount.getAddress()));
+		assertEquals(amountToTransfer, balancedToken.call("availableBalanceOf", alice.getAddress()));
+		assertEquals(amountToTransfer.multiply(TWO), balancedToken.call("availableBalanceOf", bob.getAddress()));
+
+		expectErrorMessage(() -> balancedToken.invoke(alice, "batchTransfer", recipients,
+				new BigInteger[]{amountToTransfer, ONE}, new byte[0]), "Out of available balance.");
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	void ShouldDeriveAvailableBalance() {
+		balancedToken.invoke(governance, "setAdmin", adminAccount.getAddress());
+		balancedToken.invoke(governance, "setDividends", dividendsScore.getAddress());
+		balancedToken.invoke(owner, "setMinter", adminAccount.getAddress());
+
+		BigInteger amountToMint = BigInteger.valueOf(10000L).multiply(ICX);
+		balancedToken.invoke(adminAccount, "mint", amountToMint, "init gold".getBytes());
+
+		balancedToken.invoke(governance, "toggleStakingEnabled");
+		BigInteger stakedAmount = amountToMint.divide(TWO);
+		balancedToken.invoke(governance, "setDex", mockDexScore.getAddress());
+		contextMock.when(() -> Context.call(BigInteger.class, mockDexScore.getAddress(), "getTimeOffset")).thenReturn(BigInteger.valueOf(500));
+		balancedToken.invoke(owner, "setTimeOffset");
+		mockUpdateBalnStake(adminAccount.getAddress(), BigInteger.ZERO, stakedAmount);
+		balancedToken.invoke(adminAccount, "stake", stakedAmount);
+
+		Address[] sample = new Address[]{adminAccount.getAddress()};
+		assertOnlyCallableByGovernance(balancedToken, "validateAvailableBalances", (Object) sample);
+		assertOnlyCallableByGovernance(balancedToken, "enableDerivedAvailableBalance");
+		expectErrorMessage(() -> balancedToken.invoke(governance, "validateAvailableBalances",
+				(Object) new Address[]{}), "No accounts to validate.");
+		expectErrorMessage(() -> balancedToken.invoke(governance, "enableDerivedAvailableBalance"),
+				"Validated balances add up to 0 instead of the total supply of " + amountToMint + ".");
+
+		balancedToken.invoke(governance, "validateAvailableBalances", (Object) sample);
+		balancedToken.invoke(governance, "validateAvailableBalances", (Object) sample);
+		assertEquals(amountToMint, balancedToken.call("getValidatedSupply"));
+		balancedToken.invoke(governance, "enableDerivedAvailableBalance");
+		assertEquals(true, balancedToken.call("isAvailableBalanceDerived"));
+		expectErrorMessage(() -> balancedToken.invoke(governance, "enableDerivedAvailableBalance"),
+				"Available balance is already derived.");
+		expectErrorMessage(() -> balancedToken.invoke(governance, "validateAvailableBalances", (Object) sample),
+				"Available balance is already derived.");
+
+		Account user = sm.createAccount();
+		BigInteger amountToTransfer = stakedAmount.divide(TWO);
+		balancedToken.invoke(adminAccount, "transfer", user.getAddress(), amountToTransfer, new byte[0]);
+		assertEquals(amountToMint.subtract(stakedAmount).subtract(amountToTransfer),
+				balancedToken.call("availableBalanceOf", adminAccount.getAddress()));
+		assertEquals(amountToTransfer, balancedToken.call("availableBalanceOf", user.getAddress()));
+
+		expectErrorMessage(() -> balancedToken.invoke(adminAccount, "transfer", user.getAddress(), stakedAmount,
+				new byte[0]), "Out of available balance.");
+
+		mockUpdateBalnStake(adminAccount.getAddress(), stakedAmount, ZERO);
+		balancedToken.invoke(adminAccount, "stake", ZERO);
+		Map<String, BigInteger> balanceDetails = (Map<String, BigInteger>) balancedToken.call("detailsBalanceOf",
+				adminAccount.getAddress());
+		assertEquals(amountToMint.subtract(stakedAmount).subtract(amountToTransfer),
+				balanceDetails.get("Available balance"));
+		assertEquals(ZERO, balanceDetails.get("Staked balance"));
+		assertEquals(stakedAmount, balanceDetails.get("Unstaking balance"));
+
+		// The unstaking period is zero, so the unstaked amount matures in the next block
+		BigInteger available = amountToMint.subtract(amountToTransfer);
+		balancedToken.invoke(adminAccount, "transfer", user.getAddress(), available, new byte[0]);
+		assertEquals(ZERO, balancedToken.call("availableBalanceOf", adminAccount.getAddress()));
+		assertEquals(ZERO, balancedToken.call("unstakedBalanceOf", adminAccount.getAddress()));
+		assertEquals(amountToMint, balancedToken.call("availableBalanceOf", user.getAddress()));
+	}
+
+	@Test
+	void ShouldNotDeriveAvailableBalanceOfMismatchedAccounts() {
+		balancedToken.invoke(governance, "setAdmin", adminAccount.getAddress());
+		balancedToken.invoke(owner, "setMinter", adminAccount.getAddress());
+
+		BigInteger amountToMint = BigInteger.valueOf(10000L).multiply(ICX);
+		balancedToken.invoke(adminAccount, "mint", amountToMint, "init gold".getBytes());
+
+		// A legacy account whose recorded stake is not backed by its balance
+		Account legacyUser = sm.createAccount();
+		balancedToken.invoke(governance, "setDex", mockDexScore.getAddress());
+		contextMock.when(() -> Context.call(BigInteger.class, mockDexScore.getAddress(), "getTimeOffset")).thenAnswer(invocation -> {
+			BranchDB<Address, DictDB<Integer, BigInteger>> stakedBalances =
+					Context.newBranchDB(Constants.STAKED_BALANCES, BigInteger.class);
+			stakedBalances.at(legacyUser.getAddress()).set(Status.STAKED.code, amountToMint);
+			return BigInteger.valueOf(500);
+		});
+		balancedToken.invoke(owner, "setTimeOffset");
+
+		expectErrorMessage(() -> balancedToken.invoke(governance, "validateAvailableBalances",
+				(Object) new Address[]{legacyUser.getAddress(), adminAccount.getAddress()}),
+				"do not add up to its balance.");
+		assertEquals(ZERO, balancedToken.call("getValidatedSupply"));
+
+		balancedToken.invoke(governance, "validateAvailableBalances",
+				(Object) new Address[]{adminAccount.getAddress()});
+		balancedToken.invoke(governance, "enableDerivedAvailableBalance");
+		assertEquals(amountToMint, balancedToken.call("availableBalanceOf", adminAccount.getAddress()));
+
+		// Reads of the mismatched account keep working, only spending its available balance is refused
+		assertEquals(ZERO, balancedToken.call("availableBalanceOf", legacyUser.getAddress()));
+		assertEquals(amountToMint, balancedToken.call("stakedBalanceOf", legacyUser.getAddress()));
+		expectErrorMessage(() -> balancedToken.invoke(legacyUser, "transfer", adminAccount.getAddress(), ZERO,
+				new byte[0]), "exceed its balance.");
+	}
+
+	@Test
+	void ShouldDeferStakeIncreaseInPullMode() {
+		balancedToken.invoke(governance, "setAdmin", adminAccount.getAddress());
+		balancedToken.invoke(governance, "setDividends", dividendsScore.getAddress());
+		balancedToken.invoke(owner, "setMinter", adminAccount.getAddress());
+
+		BigInteger amountToMint = BigInteger.valueOf(10000L).multiply(ICX);
+		balancedToken.invoke(adminAccount, "mint", amountToMint, "init gold".getBytes());
+
+		balancedToken.invoke(governance, "toggleStakingEnabled");
+		balancedToken.invoke(governance, "setDex", mockDexScore.getAddress());
+		contextMock.when(() -> Context.call(BigInteger.class, mockDexScore.getAddress(), "getTimeOffset")).thenReturn(BigInteger.valueOf(500));
+		balancedToken.invoke(owner, "setTimeOffset");
+
+		assertOnlyCallableByGovernance(balancedToken, "setDividendsPullMode", true);
+		contextMock.when(() -> Context.call(dividendsScore.getAddress(), "setBalnStakePullMode", true)).thenReturn(null);
+		balancedToken.invoke(governance, "setDividendsPullMode", true);
+		assertEquals(true, balancedToken.call("getDividendsPullMode"));
+
+		BigInteger stakedAmount = amountToMint.divide(TWO);
+		balancedToken.invoke(adminAccount, "stake", stakedAmount);
+		assertEquals(stakedAmount, balancedToken.call("stakedBalanceOf", adminAccount.getAddress()));
+		assertEquals(ZERO, balancedToken.call("getDividendsStake", adminAccount.getAddress()));
+
+		mockUpdateBalnStake(adminAccount.getAddress(), ZERO, stakedAmount);
+		balancedToken.invoke(dividendsScore, "syncDividendsStake",
+				(Object) new Address[]{adminAccount.getAddress()});
+		assertEquals(stakedAmount, balancedToken.call("getDividendsStake", adminAccount.getAddress()));
+
+		BigInteger reducedStake = stakedAmount.divide(TWO);
+		mockUpdateBalnStake(adminAccount.getAddress(), stakedAmount, reducedStake);
+		balancedToken.invoke(adminAccount, "stake", reducedStake);
+		assertEquals(reducedStake, balancedToken.call("getDividendsStake", adminAccount.getAddress()));
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	void ShouldBurn() {
@@ -449,6 +702,41 @@ class BalancedTokenImplTest extends TestBase {
 	}
 
 
+	@Test
+	void ShouldGetStakedBalanceOfAtAcrossDays() {
+		balancedToken.invoke(governance, "setDividends", dividendsScore.getAddress());
+		balancedToken.invoke(governance, "setAdmin", adminAccount.getAddress());
+		balancedToken.invoke(owner, "setMinter", adminAccount.getAddress());
+		BigInteger amountToMint = BigInteger.valueOf(10000L).multiply(ICX);
+		balancedToken.invoke(adminAccount, "mintTo", owner.getAddress(), amountToMint, "init gold".getBytes());
+		balancedToken.invoke(governance, "toggleStakingEnabled");
+		balancedToken.invoke(governance, "setDex", mockDexScore.getAddress());
+		contextMock.when(() -> Context.call(BigInteger.class, mockDexScore.getAddress(), "getTimeOffset")).thenReturn(BigInteger.valueOf(500));
+		balancedToken.invoke(owner, "setTimeOffset");
+
+		BigInteger firstDay = (BigInteger) balancedToken.call("getDay");
+		BigInteger previousStake = ZERO;
+		for (int i = 1; i <= 4; i++) {
+			BigInteger stake = ICX.multiply(BigInteger.valueOf(100L * i));
+			mockUpdateBalnStake(owner.getAddress(), previousStake, stake);
+			balancedToken.invoke(owner, "stake", stake);
+			previousStake = stake;
+			sm.getBlock().increase(DAY);
+		}
+
+		assertEquals(ZERO, balancedToken.call("stakedBalanceOfAt", owner.getAddress(),
+				firstDay.subtract(ONE)));
+		for (int i = 0; i < 4; i++) {
+			BigInteger day = firstDay.add(BigInteger.valueOf(i));
+			BigInteger expectedStake = ICX.multiply(BigInteger.valueOf(100L * (i + 1)));
+			assertEquals(expectedStake, balancedToken.call("stakedBalanceOfAt", owner.getAddress(), day));
+			assertEquals(expectedStake, balancedToken.call("totalStakedBalanceOfAt", day));
+		}
+		assertEquals(previousStake, balancedToken.call("stakedBalanceOfAt", owner.getAddress(),
+				firstDay.add(BigInteger.valueOf(4))));
+	}
+
+	@SuppressWarnings("unchecked")
 	@Test
 	void ShouldGetTotalStakedBalanceOfAt() {
 		balancedToken.invoke(governance, "setDividends", dividendsScore.getAddress());
@@ -516,6 +804,11 @@ class BalancedTokenImplTest extends TestBase {
 		assertEquals(expectedTotalStakeDay2, totalStakeDay2);
 		assertEquals(expectedTotalStakeDay3, totalStakeDay3);
 		assertEquals(expectedTotalStakeDay4, totalStakeDay4);
+
+		List<BigInteger> stakedBalancesDay3 = (List<BigInteger>) balancedToken.call("stakedBalancesOfAt",
+				new Address[]{owner.getAddress(), staker.getAddress()}, day3);
+		assertEquals(stakedAmount, stakedBalancesDay3.get(0));
+		assertEquals(amountToMint, stakedBalancesDay3.get(1));
 	}
 
 	@Test
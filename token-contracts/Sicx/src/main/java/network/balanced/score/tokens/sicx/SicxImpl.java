@@ -20,12 +20,14 @@ import network.balanced.score.lib.interfaces.Sicx;
 import network.balanced.score.lib.tokens.IRC2Burnable;
 import score.Address;
 import score.Context;
+import score.DictDB;
 import score.VarDB;
 import score.annotation.External;
 import score.annotation.Optional;
 
 import java.math.BigInteger;
 
+import static network.balanced.score.lib.utils.Check.only;
 import static network.balanced.score.lib.utils.Check.onlyOwner;
 
 public class SicxImpl extends IRC2Burnable implements Sicx {
@@ -34,8 +36,15 @@ public class SicxImpl extends IRC2Burnable implements Sicx {
     private static final String SYMBOL_NAME = "sICX";
     private static final BigInteger DECIMALS = BigInteger.valueOf(18);
     private static final String STAKING = "staking";
+    private static final String CUSTOM_DELEGATION = "custom_delegation";
+    private static final String DELEGATION_FLAGS_SYNCED = "delegation_flags_synced";
 
     private static final VarDB<Address> stakingAddress = Context.newVarDB(STAKING, Address.class);
+    // Holders that delegate to specific preps, as reported by the staking contract
+    private static final DictDB<Address, Boolean> customDelegation = Context.newDictDB(CUSTOM_DELEGATION,
+            Boolean.class);
+    private static final VarDB<Boolean> delegationFlagsSynced = Context.newVarDB(DELEGATION_FLAGS_SYNCED,
+            Boolean.class);
 
     public SicxImpl(Address _admin) {
         super(TOKEN_NAME, SYMBOL_NAME, DECIMALS);
@@ -70,13 +79,68 @@ public class SicxImpl extends IRC2Burnable implements Sicx {
         return priceInLoop();
     }
 
+    @External
+    public void setCustomDelegation(Address _user, boolean _custom) {
+        only(stakingAddress);
+        customDelegation.set(_user, _custom ? true : null);
+    }
+
+    @External(readonly = true)
+    public boolean hasCustomDelegation(Address _user) {
+        return customDelegation.getOrDefault(_user, false);
+    }
+
+    @External
+    public void setDelegationFlagsSynced(boolean _synced) {
+        only(stakingAddress);
+        delegationFlagsSynced.set(_synced);
+    }
+
+    @External(readonly = true)
+    public boolean getDelegationFlagsSynced() {
+        return delegationFlagsSynced.getOrDefault(false);
+    }
+
     @Override
     @External
     public void transfer(Address _to, BigInteger _value, @Optional byte[] _data) {
-        if (!_to.equals(stakingAddress.get())) {
-            Context.call(stakingAddress.get(), "transferUpdateDelegations", Context.getCaller(), _to, _value);
+        Address from = Context.getCaller();
+        updateDelegations(from, _to, _value);
+        transfer(from, _to, _value, _data);
+    }
+
+    @Override
+    @External
+    public void transferFrom(Address _from, Address _to, BigInteger _value, @Optional byte[] _data) {
+        spendAllowance(_from, Context.getCaller(), _value);
+        updateDelegations(_from, _to, _value);
+        transfer(_from, _to, _value, _data);
+    }
+
+    @Override
+    @External
+    public void batchTransfer(Address[] _to, BigInteger[] _values, @Optional byte[] _data) {
+        Address from = Context.getCaller();
+        // Checked before any delegation update is sent to the staking contract
+        Context.require(_to.length == _values.length, name() + ": Recipients and values must have the same length");
+        for (int i = 0; i < _to.length; i++) {
+            updateDelegations(from, _to[i], _values[i]);
+        }
+        batchTransfer(from, _to, _values, _data);
+    }
+
+    private void updateDelegations(Address from, Address to, BigInteger value) {
+        if (!to.equals(stakingAddress.get()) && affectsDelegations(from, to)) {
+            Context.call(stakingAddress.get(), "transferUpdateDelegations", from, to, value);
+        }
+    }
+
+    private boolean affectsDelegations(Address from, Address to) {
+        // Transfers between holders on the default delegation leave the staking contract unchanged
+        if (!delegationFlagsSynced.getOrDefault(false)) {
+            return true;
         }
-        transfer(Context.getCaller(), _to, _value, _data);
+        return customDelegation.getOrDefault(from, false) || customDelegation.getOrDefault(to, false);
     }
 
 }
@@ -225,6 +225,55 @@ class SicxImplTest extends TestBase {
         contextMock.verify(tokenFallback);
     }
 
+    @Test
+    void transferBetweenDefaultDelegations() {
+        String data = "";
+        sicxScore.invoke(staking, "mintTo", user.getAddress(), new BigInteger("100"), data.getBytes());
+        contextMock.when(transferUpdateDelegations).thenReturn(null);
+
+        Executable setSyncedNotFromStaking = () -> sicxScore.invoke(owner, "setDelegationFlagsSynced", true);
+        String expectedErrorMessage = "Authorization Check: Authorization failed. Caller: " + owner.getAddress() +
+                " Authorized Caller: " + staking.getAddress();
+        expectErrorMessage(setSyncedNotFromStaking, expectedErrorMessage);
+
+        // Once flags are synced, transfers between default delegation holders skip the staking contract
+        sicxScore.invoke(staking, "setDelegationFlagsSynced", true);
+        sicxScore.invoke(user, "transfer", owner.getAddress(), new BigInteger("30"), data.getBytes());
+        contextMock.verify(transferUpdateDelegations, Mockito.never());
+
+        sicxScore.invoke(staking, "setCustomDelegation", owner.getAddress(), true);
+        assertEquals(true, sicxScore.call("hasCustomDelegation", owner.getAddress()));
+        sicxScore.invoke(user, "transfer", owner.getAddress(), new BigInteger("30"), data.getBytes());
+        contextMock.verify(transferUpdateDelegations);
+
+        assertEquals(new BigInteger("60"), sicxScore.call("balanceOf", owner.getAddress()));
+        assertEquals(new BigInteger("40"), sicxScore.call("balanceOf", user.getAddress()));
+    }
+
+    @Test
+    void batchTransfer() {
+        String data = "";
+        sicxScore.invoke(staking, "mintTo", user.getAddress(), new BigInteger("100"), data.getBytes());
+        contextMock.when(transferUpdateDelegations).thenReturn(null);
+        contextMock.when(tokenFallback).thenReturn(null);
+
+        // Mismatched lengths are rejected before the staking contract is called
+        Address[] recipients = new Address[]{owner.getAddress(), staking.getAddress()};
+        Executable mismatchedLengths = () -> sicxScore.invoke(user, "batchTransfer", recipients,
+                new BigInteger[]{new BigInteger("10")}, data.getBytes());
+        expectErrorMessage(mismatchedLengths, "Staked ICX: Recipients and values must have the same length");
+        contextMock.verify(transferUpdateDelegations, Mockito.never());
+
+        sicxScore.invoke(user, "batchTransfer", recipients, new BigInteger[]{new BigInteger("10"),
+                new BigInteger("20")}, data.getBytes());
+        contextMock.verify(() -> Context.call(staking.getAddress(), "transferUpdateDelegations", user.getAddress(),
+                owner.getAddress(), new BigInteger("10")));
+
+        assertEquals(new BigInteger("10"), sicxScore.call("balanceOf", owner.getAddress()));
+        assertEquals(new BigInteger("20"), sicxScore.call("balanceOf", staking.getAddress()));
+        assertEquals(new BigInteger("70"), sicxScore.call("balanceOf", user.getAddress()));
+    }
+
     @AfterEach
     void resetMock() {
         contextMock.reset();
@@ -24,8 +24,10 @@ import score.Context;
 import score.VarDB;
 import score.annotation.External;
 import score.annotation.Optional;
+import scorex.util.ArrayList;
 
 import java.math.BigInteger;
+import java.util.List;
 
 import static network.balanced.score.lib.utils.ArrayDBUtils.arrayDbContains;
 import static network.balanced.score.lib.utils.ArrayDBUtils.removeFromArraydb;
@@ -114,15 +116,35 @@ public class WorkerTokenImpl extends IRC2PresetFixedSupply implements WorkerToke
         transferAndUpdateAddressList(_from, _to, _value, _data);
     }
 
+    @Override
+    @External
+    public void transferFrom(Address _from, Address _to, BigInteger _value, @Optional byte[] _data) {
+        spendAllowance(_from, Context.getCaller(), _value);
+        transferAndUpdateAddressList(_from, _to, _value, _data);
+    }
+
+    @Override
+    @External
+    public void batchTransfer(Address[] _to, BigInteger[] _values, @Optional byte[] _data) {
+        Address _from = Context.getCaller();
+        batchTransfer(_from, _to, _values, _data);
+        updateAddressList(_from, _to);
+    }
+
     private void transferAndUpdateAddressList(Address _from, Address _to, BigInteger _value, @Optional byte[] _data) {
         transfer(_from, _to, _value, _data);
+        updateAddressList(_from, new Address[]{_to});
+    }
 
+    private void updateAddressList(Address _from, Address[] _to) {
         if (balances.getOrDefault(_from, BigInteger.ZERO).equals(BigInteger.ZERO)) {
             removeFromArraydb(_from, addresses);
         }
 
-        if (!arrayDbContains(addresses, _to)) {
-            addresses.add(_to);
+        for (Address to : _to) {
+            if (!arrayDbContains(addresses, to)) {
+                addresses.add(to);
+            }
         }
 
         int MAX_HOLDER_COUNT = 400;
@@ -141,6 +163,8 @@ public class WorkerTokenImpl extends IRC2PresetFixedSupply implements WorkerToke
         // dist = balance of worker token contract
         Address balnToken = this.balnToken.get();
         BigInteger dist = (BigInteger) Context.call(balnToken, "balanceOf", Context.getAddress());
+        List<Address> recipients = new ArrayList<>();
+        List<BigInteger> amounts = new ArrayList<>();
         for (int i = 0; i < size; i++) {
             Address address = addresses.get(i);
             BigInteger balance = balances.getOrDefault(address, BigInteger.ZERO);
@@ -149,9 +173,20 @@ public class WorkerTokenImpl extends IRC2PresetFixedSupply implements WorkerToke
                 BigInteger amount = dist.multiply(balance).divide(totalTokens);
                 dist = dist.subtract(amount);
                 totalTokens = totalTokens.subtract(balance);
-                Context.call(balnToken, "transfer", address, amount, new byte[0]);
+                recipients.add(address);
+                amounts.add(amount);
             }
         }
+
+        // One call to the BALN contract pays every holder
+        int count = recipients.size();
+        Address[] to = new Address[count];
+        BigInteger[] values = new BigInteger[count];
+        for (int i = 0; i < count; i++) {
+            to[i] = recipients.get(i);
+            values[i] = amounts.get(i);
+        }
+        Context.call(balnToken, "batchTransfer", to, values, new byte[0]);
     }
 
     /**
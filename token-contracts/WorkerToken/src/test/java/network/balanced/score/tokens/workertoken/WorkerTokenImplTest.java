@@ -158,19 +158,20 @@ class WorkerTokenImplTest extends TestBase {
         contextMock.reset();
         BigInteger totalBalnToDistribute = BigInteger.valueOf(6833L).multiply(ICX);
         contextMock.when(() -> Context.call(balnScore.getAddress(), "balanceOf", workerToken.getAddress())).thenReturn(totalBalnToDistribute);
-        contextMock.when(() -> Context.call(eq(balnScore.getAddress()), eq("transfer"),
+        contextMock.when(() -> Context.call(eq(balnScore.getAddress()), eq("batchTransfer"),
                 ArgumentMatchers.argThat(new VarargAnyMatcher()))).thenReturn(null);
 
-        ArgumentCaptor<Address> receiver = ArgumentCaptor.forClass(Address.class);
-        ArgumentCaptor<BigInteger> receivableAmount = ArgumentCaptor.forClass(BigInteger.class);
+        ArgumentCaptor<Address[]> receiver = ArgumentCaptor.forClass(Address[].class);
+        ArgumentCaptor<BigInteger[]> receivableAmount = ArgumentCaptor.forClass(BigInteger[].class);
 
         workerToken.invoke(owner, "distribute");
         contextMock.verify(() -> Context.call(balnScore.getAddress(), "balanceOf", workerToken.getAddress()));
-        contextMock.verify(() -> Context.call(eq(balnScore.getAddress()), eq("transfer"), receiver.capture(),
-                receivableAmount.capture(), any(byte[].class)), times(holdersCount));
+        contextMock.verify(() -> Context.call(eq(balnScore.getAddress()), eq("batchTransfer"), receiver.capture(),
+                receivableAmount.capture(), any(byte[].class)), times(1));
 
-        List<BigInteger> amountsReceived = receivableAmount.getAllValues();
-        List<Address> distributionReceivers = receiver.getAllValues();
+        List<BigInteger> amountsReceived = List.of(receivableAmount.getValue());
+        List<Address> distributionReceivers = List.of(receiver.getValue());
+        assertEquals(holdersCount, distributionReceivers.size());
 
         BigInteger totalDistributedAmount = BigInteger.ZERO;
         for (BigInteger amount : amountsReceived) {
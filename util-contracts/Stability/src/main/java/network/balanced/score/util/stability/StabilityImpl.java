@@ -17,6 +17,7 @@
 package network.balanced.score.util.stability;
 
 import network.balanced.score.lib.interfaces.Stability;
+import network.balanced.score.lib.utils.TokenFallbackData;
 import score.*;
 import score.annotation.External;
 import scorex.util.ArrayList;
@@ -27,7 +28,7 @@ import java.util.List;
 import static network.balanced.score.lib.utils.Check.isContract;
 import static network.balanced.score.lib.utils.Check.onlyOwner;
 import static network.balanced.score.lib.utils.Constants.EXA;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.FixedPoint.tenPow;
 
 public class StabilityImpl implements Stability {
 
@@ -132,7 +133,7 @@ public class StabilityImpl implements Stability {
 
         int tokenDecimal = ((BigInteger) Context.call(_address, "decimals")).intValue();
         decimals.set(_address, tokenDecimal);
-        BigInteger actualLimit = _limit.multiply(pow(BigInteger.TEN, tokenDecimal));
+        BigInteger actualLimit = _limit.multiply(tenPow(tokenDecimal));
         tokenLimits.set(_address, actualLimit);
         acceptedTokens.add(_address);
     }
@@ -144,7 +145,7 @@ public class StabilityImpl implements Stability {
         Context.require(tokenLimits.get(_address) != null, TAG + ": Address not white listed previously");
 
         int tokenDecimal = decimals.get(_address);
-        BigInteger actualLimit = _limit.multiply(pow(BigInteger.TEN, tokenDecimal));
+        BigInteger actualLimit = _limit.multiply(tenPow(tokenDecimal));
         tokenLimits.set(_address, actualLimit);
     }
 
@@ -165,7 +166,7 @@ public class StabilityImpl implements Stability {
 
     private void mintBnusd(BigInteger _amount, Address _asset, Address _user, Address bnusdAddress) {
         int assetInDecimals = decimals.get(_asset);
-        BigInteger equivalentBnusd = (_amount.multiply(ONE_BNUSD)).divide(pow(BigInteger.TEN, assetInDecimals));
+        BigInteger equivalentBnusd = (_amount.multiply(ONE_BNUSD)).divide(tenPow(assetInDecimals));
         Context.require(equivalentBnusd.compareTo(BigInteger.ZERO) > 0, TAG + ": Bnusd amount must be greater than " +
                 "zero");
         BigInteger fee = (feeIn.get().multiply(equivalentBnusd)).divide(HUNDRED_PERCENTAGE);
@@ -177,8 +178,16 @@ public class StabilityImpl implements Stability {
     }
 
     private void returnBnusd(Address _user, BigInteger _amount, byte[] _data, Address bnusdAddress) {
-        String asset = new String(_data);
-        Address assetToReturn = Address.fromString(asset);
+        // The asset is sent either binary encoded or as its address string
+        Address assetToReturn;
+        if (TokenFallbackData.isBinary(_data)) {
+            TokenFallbackData data = TokenFallbackData.decode(_data);
+            Context.require(data.getMethod().equals(TokenFallbackData.RETURN_ASSET), TAG + ": Unsupported method " +
+                    data.getMethod());
+            assetToReturn = data.getToToken();
+        } else {
+            assetToReturn = Address.fromString(new String(_data));
+        }
 
         Context.require(tokenLimits.get(assetToReturn) != null, TAG + ": Whitelisted tokens can only be sent");
 
@@ -188,7 +197,7 @@ public class StabilityImpl implements Stability {
 
         BigInteger bnusdToConvert = _amount.subtract(fee);
         BigInteger equivalentAssetAmount =
-                (bnusdToConvert.multiply(pow(BigInteger.TEN, assetOutDecimals))).divide(ONE_BNUSD);
+                (bnusdToConvert.multiply(tenPow(assetOutDecimals))).divide(ONE_BNUSD);
         Context.require(equivalentAssetAmount.compareTo(BigInteger.ZERO) > 0, TAG + ": Asset to return can't be zero " +
                 "or less");
 
@@ -20,6 +20,7 @@ import com.iconloop.score.test.Account;
 import com.iconloop.score.test.Score;
 import com.iconloop.score.test.ServiceManager;
 import com.iconloop.score.test.TestBase;
+import network.balanced.score.lib.utils.TokenFallbackData;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.function.Executable;
 import org.mockito.MockedStatic;
@@ -309,6 +310,30 @@ class StabilityImplTest extends TestBase {
             contextMock.verify(() -> Context.call(iusdc.getAddress(), "transfer", user.getAddress(),
                     equivalentAssetOut));
         }
+
+        @Test
+        void returnWithBinaryAsset() {
+            contextMock.when(() -> Context.call(iusdc.getAddress(), "decimals")).thenReturn(iusdcDecimals);
+            stabilityScore.invoke(owner, "whitelistTokens", iusdc.getAddress(), limit);
+
+            BigInteger fee = feeOut.multiply(bnusdAmount).divide(BigInteger.valueOf(100).multiply(ICX));
+            BigInteger bnusdToConvert = bnusdAmount.subtract(fee);
+            BigInteger equivalentAssetOut = bnusdToConvert.multiply(BigInteger.TEN.pow(iusdcDecimals.intValue())).divide(ICX);
+
+            contextMock.when(() -> Context.call(iusdc.getAddress(), "balanceOf", stabilityScore.getAddress())).thenReturn(equivalentAssetOut);
+            contextMock.when(() -> Context.call(eq(bnusd.getAddress()), eq("burn"), any(BigInteger.class))).thenReturn(null);
+            contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                    any(BigInteger.class))).thenReturn(null);
+            Executable otherMethod = () -> stabilityScore.invoke(bnusd, "tokenFallback", user.getAddress(),
+                    bnusdAmount, TokenFallbackData.deposit());
+            expectErrorMessage(otherMethod, TAG + ": Unsupported method " + TokenFallbackData.DEPOSIT);
+
+            stabilityScore.invoke(bnusd, "tokenFallback", user.getAddress(), bnusdAmount,
+                    TokenFallbackData.returnAsset(iusdc.getAddress()));
+
+            contextMock.verify(() -> Context.call(iusdc.getAddress(), "transfer", user.getAddress(),
+                    equivalentAssetOut));
+        }
     }
 
     @AfterEach